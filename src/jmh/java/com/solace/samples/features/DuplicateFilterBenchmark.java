@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: DuplicateFilterBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of looking up and adding message IDs in a {@link DuplicateFilter} holding 10 thousand to 10 million keys,
+ * which should not grow with the number of keys.
+ *
+ * Half of the looked up keys were added before, half were not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DuplicateFilterBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({ "10000", "1000000", "10000000" })
+    int keys;
+
+    private DuplicateFilter filter;
+    private final String[] lookups = new String[LOOKUPS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // Window long enough that no generation rotates during the run
+        filter = new DuplicateFilter(keys * 2L, 0.001, TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < keys; i++) {
+            filter.add("ID:" + i);
+        }
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = "ID:" + (i % 2 == 0 ? i * (keys / LOOKUPS) : keys + i);
+        }
+    }
+
+    @Benchmark
+    public boolean mightContain() {
+        return filter.mightContain(lookups[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public void add() {
+        filter.add(lookups[next++ & (LOOKUPS - 1)]);
+    }
+}
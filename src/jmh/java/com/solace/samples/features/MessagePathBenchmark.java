@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: MessagePathBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Client-side cost of the work the samples do per message: creating messages, filling in their body and properties,
+ * generating correlation IDs, dispatching to a listener and {@code Message.toString()}.
+ *
+ * The session comes from a connection to an in-process {@link LocalBroker} on the loopback interface, so no network
+ * broker is needed. Only {@link #listenerDispatch} goes through the broker; everything else stays in the client.
+ * Run with {@code -prof gc} to see the allocation rate of each operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagePathBenchmark {
+
+    // Port of the benchmark's own broker, away from the default so it can run next to a local broker
+    static final int BROKER_PORT = 5682;
+
+    @Param({ "100", "1024" })
+    int payloadSize;
+
+    private LocalBroker broker;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private String text;
+    private byte[] bytes;
+    private TextMessage populatedMessage;
+    private String replyCorrelationId;
+    private final CorrelationIdGenerator correlationIds = new CorrelationIdGenerator();
+    private final AtomicLong dispatched = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker = new LocalBroker(BROKER_PORT);
+        broker.start();
+        connection = new JmsConnectionFactory("benchmark", "benchmark", broker.getUrl()).createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic("T/GettingStarted/benchmark");
+        producer = session.createProducer(topic);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        // The listener runs on its own session, as in the samples
+        Session listenerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = listenerSession.createConsumer(topic);
+        consumer.setMessageListener(message -> dispatched.incrementAndGet());
+        connection.start();
+
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        text = new String(chars);
+        bytes = new byte[payloadSize];
+        populatedMessage = setTextAndProperties();
+        // As seen in a reply, with the prefix Apache Qpid JMS may add
+        replyCorrelationId = "ID:" + populatedMessage.getJMSCorrelationID();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    public Message createTextMessage() throws JMSException {
+        return session.createTextMessage();
+    }
+
+    @Benchmark
+    public TextMessage setText() throws JMSException {
+        TextMessage message = session.createTextMessage();
+        message.setText(text);
+        return message;
+    }
+
+    @Benchmark
+    public BytesMessage writeBytes() throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(bytes);
+        return message;
+    }
+
+    @Benchmark
+    public TextMessage setTextAndProperties() throws JMSException {
+        TextMessage message = session.createTextMessage(text);
+        message.setStringProperty("Region", "EMEA");
+        message.setLongProperty(LatencyPublisher.SEQUENCE_PROPERTY, 42L);
+        message.setIntProperty("Priority", 4);
+        message.setJMSCorrelationID(correlationIds.toCorrelationId(correlationIds.nextSequence()));
+        return message;
+    }
+
+    @Benchmark
+    public String correlationIdUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String correlationIdGenerator() {
+        return correlationIds.toCorrelationId(correlationIds.nextSequence());
+    }
+
+    @Benchmark
+    public long correlationIdParse() {
+        return correlationIds.parse(replyCorrelationId);
+    }
+
+    @Benchmark
+    public String messageToString() {
+        return populatedMessage.toString();
+    }
+
+    /**
+     * Sends one message and waits until the listener has been called for it.
+     */
+    @Benchmark
+    public long listenerDispatch() throws JMSException {
+        long target = dispatched.get() + 1;
+        producer.send(session.createTextMessage(text));
+        while (dispatched.get() < target) {
+            Thread.yield();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PayloadBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and allocation of sending and receiving a payload as a {@code TextMessage} string, as the samples do,
+ * compared with the binary path of {@link BytesPayloads}.
+ *
+ * Every operation sends one message through an in-process {@link LocalBroker} and receives it again on the same
+ * thread. Run with {@code -prof gc} to compare the bytes allocated per message ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+    private static final long RECEIVE_TIMEOUT = 5000;
+
+    @Param({ "1024", "65536" })
+    int payloadSize;
+
+    private LocalBroker broker;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private MessageConsumer consumer;
+    private String text;
+    private BytesPayloads.PayloadWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker = new LocalBroker(MessagePathBenchmark.BROKER_PORT);
+        broker.start();
+        connection = new JmsConnectionFactory("benchmark", "benchmark", broker.getUrl()).createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic("T/GettingStarted/payload");
+        producer = session.createProducer(topic);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        consumer = connection.createSession(false, Session.AUTO_ACKNOWLEDGE).createConsumer(topic);
+        connection.start();
+
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        text = new String(chars);
+        byte[] bytes = new byte[payloadSize];
+        Arrays.fill(bytes, (byte) 'x');
+        writer = buffer -> buffer.put(bytes);
+        if (!BytesPayloads.isZeroCopy()) {
+            System.out.println("BytesPayloads copies payloads with this client version.");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    public int text() throws JMSException {
+        producer.send(session.createTextMessage(text));
+        String received = ((TextMessage) consumer.receive(RECEIVE_TIMEOUT)).getText();
+        return received.charAt(received.length() - 1);
+    }
+
+    @Benchmark
+    public int bytes() throws JMSException {
+        producer.send(BytesPayloads.createMessage(session, writer));
+        ByteBuffer received = BytesPayloads.payload((BytesMessage) consumer.receive(RECEIVE_TIMEOUT));
+        return received.get(received.limit() - 1);
+    }
+}
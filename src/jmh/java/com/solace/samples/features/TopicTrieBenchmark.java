@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: TopicTrieBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of finding the handlers for a topic in a {@link TopicTrie}, by the number of registered handlers and the
+ * number of topic levels.
+ *
+ * Handlers subscribe to random topics of the given depth, with a quarter of them using a '*' level, an eighth a prefix
+ * level and an eighth ending in '>'. Each operation matches one of 1024 random topics from the same levels. Run with
+ * {@code -prof gc} to confirm that lookups do not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopicTrieBenchmark {
+
+    // Distinct values per level
+    private static final int LEVEL_VALUES = 8;
+    private static final int TOPICS = 1024;
+
+    @Param({ "10", "100", "1000", "10000" })
+    int handlers;
+
+    @Param({ "3", "6", "10" })
+    int depth;
+
+    private final TopicTrie<Integer> trie = new TopicTrie<>();
+    private final String[] topics = new String[TOPICS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < handlers; i++) {
+            String[] levels = randomLevels(random);
+            int kind = random.nextInt(8);
+            int level = 1 + random.nextInt(depth - 1);
+            if (kind < 2) {
+                levels[level] = "*";
+            } else if (kind == 2) {
+                levels[level] = levels[level].substring(0, 2) + "*";
+            } else if (kind == 3) {
+                levels[level] = ">";
+                String[] shorter = new String[level + 1];
+                System.arraycopy(levels, 0, shorter, 0, level + 1);
+                levels = shorter;
+            }
+            trie.subscribe(String.join("/", levels), i);
+        }
+        for (int i = 0; i < TOPICS; i++) {
+            topics[i] = String.join("/", randomLevels(random));
+        }
+    }
+
+    @Benchmark
+    public int match(Blackhole blackhole) {
+        String topic = topics[next++ & (TOPICS - 1)];
+        return trie.forEachMatch(topic, blackhole, (handler, hole) -> hole.consume(handler));
+    }
+
+    private String[] randomLevels(Random random) {
+        String[] levels = new String[depth];
+        levels[0] = "bench";
+        for (int i = 1; i < depth; i++) {
+            levels[i] = "level" + random.nextInt(LEVEL_VALUES);
+        }
+        return levels;
+    }
+}
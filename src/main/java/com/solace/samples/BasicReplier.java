@@ -27,12 +27,19 @@ import org.apache.qpid.jms.JmsConnectionFactory;
 import org.apache.qpid.jms.JmsTemporaryQueue;
 import org.apache.qpid.jms.JmsDestination;
 
+import com.solace.samples.features.AsyncRequestor;
+import com.solace.samples.features.ClientMetrics;
+import com.solace.samples.features.MessageTracer;
+import com.solace.samples.features.ReplierService;
+
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.CountDownLatch;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.DeliveryMode;
 import javax.jms.Destination;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
@@ -52,6 +59,9 @@ public class BasicReplier {
 
     final String REQUEST_TOPIC_NAME = "T/GettingStarted/requests";
 
+    // Identifies this replier to requestors gathering replies from several repliers
+    final String REPLIER_ID = ManagementFactory.getRuntimeMXBean().getName();
+
     // Latch used for synchronizing between threads
     final CountDownLatch latch = new CountDownLatch(1);
 
@@ -62,6 +72,9 @@ public class BasicReplier {
 
         System.out.printf("BasicReplier is connecting to Solace messaging at %s...%n", solaceHost);
 
+        // Metrics of the requests and replies, available over JMX and printed before exiting
+        ClientMetrics metrics = new ClientMetrics("BasicReplier");
+
         // Programmatically create the connection factory using default settings
         ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
 
@@ -76,20 +89,25 @@ public class BasicReplier {
         // Create the request topic programmatically
         Topic requestTopic = session.createTopic(REQUEST_TOPIC_NAME);
 
+        // Traces the received request in full on a background thread, see MessageTracer
+        MessageTracer tracer = new MessageTracer("BasicReplier", 1, 100);
+        tracer.setFullDumps(true);
+
         // Create the message consumer for the request topic
         MessageConsumer requestConsumer = session.createConsumer(requestTopic);
 
-        // Create the message producer for the reply queue
-        MessageProducer replyProducer = session.createProducer(null);
+        // Create the message producer for the reply queue, recording its sends in the metrics
+        MessageProducer replyProducer = metrics.instrument(session.createProducer(null));
 
-        // Use the anonymous inner class for receiving request messages asynchronously
-        requestConsumer.setMessageListener(new MessageListener() {
+        // Use the anonymous inner class for receiving request messages asynchronously, recording them in the metrics
+        requestConsumer.setMessageListener(metrics.instrument(new MessageListener() {
             @Override
             public void onMessage(Message request) {
                 try {
                     Destination replyDestination = request.getJMSReplyTo();
                     if (replyDestination != null) {
                         System.out.println("Received request, responding...");
+                        tracer.trace(request);
 
                         // workaround as the Apache Qpid JMS API always sets JMSReplyTo as non-temporary
                         String replyDestinationName = ((JmsDestination) replyDestination).getAddress();
@@ -101,6 +119,7 @@ public class BasicReplier {
 
                         // Copy the correlation ID from the request to the reply
                         reply.setJMSCorrelationID(request.getJMSCorrelationID());
+                        reply.setStringProperty(AsyncRequestor.REPLIER_ID_PROPERTY, REPLIER_ID);
 
                         // Sent the reply
                         replyProducer.send(replyDestination, reply, DeliveryMode.NON_PERSISTENT,
@@ -117,13 +136,15 @@ public class BasicReplier {
                     ex.printStackTrace();
                 }
             }
-        });
+        }));
 
         // Start receiving messages
         connection.start();
         System.out.println("Awaiting request...");
         // the main thread blocks at the next statement until a message received
         latch.await();
+        tracer.close();
+        metrics.printSummary();
 
         connection.stop();
         // Close everything in the order reversed from the opening order
@@ -136,11 +157,58 @@ public class BasicReplier {
         connection.close();
     }
 
+    // Replies to requests on a pool of workers until interrupted, see ReplierService
+    private void runService(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int workers = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        boolean virtualThreads = args.length > 5 && "virtual".equals(args[5]);
+        int producerCacheSize = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+
+        System.out.printf("BasicReplier is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic requestTopic = session.createTopic(REQUEST_TOPIC_NAME);
+
+        // Traces one in 1000 requests, at most 10 per second
+        MessageTracer tracer = new MessageTracer("BasicReplier", 1000, 10);
+        ReplierService service = new ReplierService(connection, requestTopic, workers, virtualThreads,
+                producerCacheSize, (request, reply) -> {
+                    tracer.trace(request);
+                    reply.setText("Sample response");
+                    reply.setStringProperty(AsyncRequestor.REPLIER_ID_PROPERTY, REPLIER_ID);
+                });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                connection.stop();
+                service.close();
+                tracer.close();
+                System.out.println(tracer.summary());
+                connection.close();
+            } catch (JMSException | InterruptedException ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        System.out.printf("Serving requests with %d workers, press Ctrl-C to exit...%n", workers);
+        latch.await();
+    }
+
     public static void main(String... args) throws Exception {
         if (args.length < 3) {
             System.out.println("Usage: BasicReplier amqp://<msg_backbone_ip:amqp_port> <username> <password>");
+            System.out.println("       BasicReplier amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "service [<workers> <virtual|platform> <producer_cache_size>]");
             System.exit(-1);
         }
-        new BasicReplier().run(args);
+        if (args.length > 3 && "service".equals(args[3])) {
+            new BasicReplier().runService(args);
+        } else {
+            new BasicReplier().run(args);
+        }
     }
 }
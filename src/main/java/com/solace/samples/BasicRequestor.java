@@ -24,8 +24,25 @@
 package com.solace.samples;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsTopic;
 
+import com.solace.samples.features.AsyncRequestor;
+import com.solace.samples.features.ClientMetrics;
+import com.solace.samples.features.ConnectionPool;
+import com.solace.samples.features.CorrelationIdGenerator;
+import com.solace.samples.features.FailoverRequestor;
+import com.solace.samples.features.GatheredReplies;
+import com.solace.samples.features.Histogram;
+import com.solace.samples.features.RateLimiter;
+import com.solace.samples.features.RoundTripProbe;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.DeliveryMode;
@@ -56,22 +73,26 @@ public class BasicRequestor {
 
         System.out.printf("BasicRequestor is connecting to Solace messaging at %s...%n", solaceHost);
 
+        // Metrics of the request and its round trip, available over JMX and printed before exiting
+        ClientMetrics metrics = new ClientMetrics("BasicRequestor");
+
         // Programmatically create the connection factory using default settings
         ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
 
-        // Create connection to the Solace messaging
-        Connection connection = connectionFactory.createConnection();
+        // Pool the connection, session and producer, so that further requests would reuse them, see ConnectionPool
+        ConnectionPool pool = new ConnectionPool(connectionFactory);
 
-        // Create a non-transacted, auto ACK session.
-        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        // Borrow a non-transacted, auto ACK session, creating the connection to the Solace messaging
+        ConnectionPool.PooledSession pooledSession = pool.borrow(10, TimeUnit.SECONDS);
+        Session session = pooledSession.getSession();
 
         System.out.printf("Connected to the Solace messaging with client username '%s'.%n", solacePassword);
 
         // Create the request topic programmatically
         Topic requestTopic = session.createTopic(REQUEST_TOPIC_NAME);
 
-        // Create the message producer
-        MessageProducer requestProducer = session.createProducer(null);
+        // Get the session's message producer for the topic, recording its sends in the metrics
+        MessageProducer requestProducer = metrics.instrument(pooledSession.getProducer(requestTopic));
 
         // The response will be received on this temporary queue.
         TemporaryQueue replyToQueue = session.createTemporaryQueue();
@@ -79,8 +100,7 @@ public class BasicRequestor {
         // Create consumer for receiving the request's reply
         MessageConsumer replyConsumer = session.createConsumer(replyToQueue);
 
-        // Start receiving replies
-        connection.start();
+        // Pooled connections are already started, so replies are received right away
 
         // Create a request.
         TextMessage request = session.createTextMessage("Sample Request");
@@ -93,7 +113,8 @@ public class BasicRequestor {
         System.out.printf("Sending request '%s' to topic '%s'...%n", request.getText(), requestTopic.toString());
 
         // Send the request
-        requestProducer.send(requestTopic, request, DeliveryMode.NON_PERSISTENT,
+        long requestStart = metrics.requestStarted();
+        requestProducer.send(request, DeliveryMode.NON_PERSISTENT,
                 Message.DEFAULT_PRIORITY,
                 Message.DEFAULT_TIME_TO_LIVE);
 
@@ -101,6 +122,7 @@ public class BasicRequestor {
 
         // the main thread blocks at the next statement until a message received or the timeout occurs
         Message reply = replyConsumer.receive(REPLY_TIMEOUT_MS);
+        metrics.requestCompleted(requestStart, reply != null);
 
         if (reply == null) {
             throw new Exception("Failed to receive a reply in " + REPLY_TIMEOUT_MS + " msecs");
@@ -112,8 +134,8 @@ public class BasicRequestor {
                     "Received a reply message with no correlationID. This field is needed for a direct request.");
         }
 
-        // Apache Qpid JMS prefixes correlation ID with string "ID:" so remove such prefix for interoperability
-        if (!reply.getJMSCorrelationID().replaceAll("ID:", "").equals(correlationId)) {
+        // Apache Qpid JMS prefixes correlation ID with string "ID:" so ignore such prefix for interoperability
+        if (!CorrelationIdGenerator.matches(reply.getJMSCorrelationID(), correlationId)) {
             throw new Exception("Received invalid correlationID in reply message.");
         }
 
@@ -124,14 +146,196 @@ public class BasicRequestor {
         }
 
         System.out.printf("Message Content:%n%s%n", reply.toString());
+        metrics.printSummary();
 
-        connection.stop();
-        // Close everything in the order reversed from the opening order
+        // Close the reply consumer and queue, return the session with its producer to the pool, then close the pool
         // NOTE: as the interfaces below extend AutoCloseable,
         // with them it's possible to use the "try-with-resources" Java statement
         // see details at https://docs.oracle.com/javase/tutorial/essential/exceptions/tryResourceClose.html
         replyConsumer.close();
-        requestProducer.close();
+        replyToQueue.delete();
+        pooledSession.close();
+        pool.close();
+    }
+
+    // Sends many concurrent requests over one connection, see AsyncRequestor
+    private void runAsync(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int requestCount = args.length > 4 ? Integer.parseInt(args[4]) : 100000;
+        int concurrency = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+
+        System.out.printf("BasicRequestor is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic requestTopic = session.createTopic(REQUEST_TOPIC_NAME);
+        AsyncRequestor requestor = new AsyncRequestor(connection, requestTopic);
+        ClientMetrics metrics = new ClientMetrics("BasicRequestor");
+        requestor.setMetrics(metrics);
+        connection.start();
+
+        System.out.printf("Sending %d requests to topic '%s' with up to %d outstanding...%n", requestCount,
+                requestTopic.toString(), concurrency);
+        Semaphore outstanding = new Semaphore(concurrency);
+        LongAdder replies = new LongAdder();
+        LongAdder failures = new LongAdder();
+        long start = System.nanoTime();
+        for (int i = 0; i < requestCount; i++) {
+            outstanding.acquire();
+            TextMessage request = requestor.createTextMessage("Sample Request");
+            requestor.request(request, REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS).whenComplete((reply, ex) -> {
+                if (ex == null) {
+                    replies.increment();
+                } else {
+                    failures.increment();
+                }
+                outstanding.release();
+            });
+        }
+        outstanding.acquire(concurrency);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d replies, %d failed or timed out in %.2f s (%.0f requests/s). Exiting...%n",
+                replies.sum(), failures.sum(), seconds, replies.sum() / seconds);
+        metrics.printSummary();
+
+        connection.stop();
+        requestor.close();
+        session.close();
+        connection.close();
+    }
+
+    // Sends requests at a fixed rate and records their round-trip latency, see RoundTripProbe
+    private void runLatency(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int requestsPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        int durationSeconds = args.length > 5 ? Integer.parseInt(args[5]) : 60;
+        int payloadSize = args.length > 6 ? Integer.parseInt(args[6]) : 100;
+        File logDirectory = args.length > 7 ? new File(args[7]) : null;
+
+        System.out.printf("BasicRequestor is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic requestTopic = session.createTopic(REQUEST_TOPIC_NAME);
+        AsyncRequestor requestor = new AsyncRequestor(connection, requestTopic);
+        connection.start();
+
+        System.out.printf("Sending %d requests/s to topic '%s' for %d seconds...%n", requestsPerSecond,
+                requestTopic.toString(), durationSeconds);
+        new RoundTripProbe(requestor, requestsPerSecond, durationSeconds, payloadSize, logDirectory).run();
+
+        connection.stop();
+        requestor.close();
+        session.close();
+        connection.close();
+    }
+
+    // Keeps a warm standby requestor on a second broker and fails over to it, see FailoverRequestor
+    private void runFailover(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        if (args.length < 5) {
+            System.out.println("The failover mode needs the URL of the standby broker.");
+            System.exit(-1);
+        }
+        String standbyHost = args[4];
+        int requestCount = args.length > 5 ? Integer.parseInt(args[5]) : 100000;
+        int requestsPerSecond = args.length > 6 ? Integer.parseInt(args[6]) : 1000;
+
+        System.out.printf("BasicRequestor is connecting to Solace messaging at %s with a standby at %s...%n",
+                solaceHost, standbyHost);
+
+        ConnectionFactory primaryFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        ConnectionFactory standbyFactory = new JmsConnectionFactory(solaceUsername, solacePassword, standbyHost);
+        Topic requestTopic = new JmsTopic(REQUEST_TOPIC_NAME);
+        FailoverRequestor requestor = new FailoverRequestor(primaryFactory, standbyFactory, requestTopic);
+        requestor.start();
+
+        System.out.printf("Sending %d requests to topic '%s' at %d requests/s...%n", requestCount,
+                requestTopic.toString(), requestsPerSecond);
+        LongAdder replies = new LongAdder();
+        LongAdder failures = new LongAdder();
+        RateLimiter limiter = new RateLimiter(requestsPerSecond);
+        long start = System.nanoTime();
+        for (int i = 0; i < requestCount; i++) {
+            limiter.acquire();
+            requestor.request("Sample Request", REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS).whenComplete((reply, ex) -> {
+                if (ex == null) {
+                    replies.increment();
+                } else {
+                    failures.increment();
+                }
+            });
+            if (i % requestsPerSecond == requestsPerSecond - 1) {
+                System.out.println(requestor.summary());
+            }
+        }
+        while (replies.sum() + failures.sum() < requestCount) {
+            Thread.sleep(10);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d replies, %d failed or timed out in %.2f s. Exiting...%n", replies.sum(),
+                failures.sum(), seconds);
+        System.out.println(requestor.summary());
+        requestor.close();
+    }
+
+    // Sends each request once to all repliers and gathers their replies, see AsyncRequestor.scatter
+    private void runScatter(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int expectedReplies = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int quorum = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        int timeoutMillis = args.length > 6 ? Integer.parseInt(args[6]) : 1000;
+        int requestCount = args.length > 7 ? Integer.parseInt(args[7]) : 10;
+
+        System.out.printf("BasicRequestor is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic requestTopic = session.createTopic(REQUEST_TOPIC_NAME);
+        AsyncRequestor requestor = new AsyncRequestor(connection, requestTopic);
+        connection.start();
+
+        System.out.printf("Sending %d requests to topic '%s', gathering %d replies%s within %d ms...%n", requestCount,
+                requestTopic.toString(), expectedReplies, quorum > 0 ? " or a quorum of " + quorum : "",
+                timeoutMillis);
+        Map<String, Histogram> latencies = new TreeMap<>();
+        int quorums = 0;
+        for (int i = 0; i < requestCount; i++) {
+            TextMessage request = requestor.createTextMessage("Sample Request");
+            GatheredReplies replies = requestor.scatter(request, expectedReplies, quorum, timeoutMillis,
+                    TimeUnit.MILLISECONDS).get();
+            System.out.println(replies.summary());
+            if (replies.isQuorumReached()) {
+                quorums++;
+            }
+            for (int r = 0; r < replies.getReplyCount(); r++) {
+                latencies.computeIfAbsent(String.valueOf(replies.getReplierId(r)), id -> new Histogram())
+                        .recordValue(replies.getLatencyNanos(r));
+            }
+        }
+
+        System.out.printf("%d of %d requests reached their quorum, %d late replies. Exiting...%n", quorums,
+                requestCount, requestor.getLateReplyCount());
+        for (Map.Entry<String, Histogram> entry : latencies.entrySet()) {
+            System.out.printf("%s: %d replies, latency (us) %s%n", entry.getKey(), entry.getValue().getTotalCount(),
+                    entry.getValue().summary(1000.0));
+        }
+
+        connection.stop();
+        requestor.close();
         session.close();
         connection.close();
     }
@@ -139,8 +343,26 @@ public class BasicRequestor {
     public static void main(String... args) throws Exception {
         if (args.length < 3) {
             System.out.println("Usage: BasicRequestor amqp://<msg_backbone_ip:amqp_port> <username> <password>");
+            System.out.println("       BasicRequestor amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "async [<request_count> <concurrency>]");
+            System.out.println("       BasicRequestor amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "latency [<requests_per_sec> <duration_sec> <payload_bytes> <log_dir>]");
+            System.out.println("       BasicRequestor amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "failover amqp://<standby_ip:amqp_port> [<request_count> <requests_per_sec>]");
+            System.out.println("       BasicRequestor amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "scatter [<expected_replies> <quorum> <timeout_ms> <request_count>]");
             System.exit(-1);
         }
-        new BasicRequestor().run(args);
+        if (args.length > 3 && "async".equals(args[3])) {
+            new BasicRequestor().runAsync(args);
+        } else if (args.length > 3 && "latency".equals(args[3])) {
+            new BasicRequestor().runLatency(args);
+        } else if (args.length > 3 && "failover".equals(args[3])) {
+            new BasicRequestor().runFailover(args);
+        } else if (args.length > 3 && "scatter".equals(args[3])) {
+            new BasicRequestor().runScatter(args);
+        } else {
+            new BasicRequestor().run(args);
+        }
     }
 }
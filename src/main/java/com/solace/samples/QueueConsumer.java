@@ -24,9 +24,31 @@
 package com.solace.samples;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsSession;
 
+import com.solace.samples.features.AckController;
+import com.solace.samples.features.AdaptiveConsumer;
+import com.solace.samples.features.AdaptivePrefetchPolicy;
+import com.solace.samples.features.ClientMetrics;
+import com.solace.samples.features.ConsumerPool;
+import com.solace.samples.features.DeduplicatingListener;
+import com.solace.samples.features.DuplicateFilter;
+import com.solace.samples.features.MessageBatcher;
+import com.solace.samples.features.MessageTracer;
+import com.solace.samples.features.PartitionedConsumer;
+import com.solace.samples.features.PayloadCompressor;
+import com.solace.samples.features.ReceivePipeline;
+import com.solace.samples.features.TransactedConsumer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
@@ -56,6 +78,9 @@ public class QueueConsumer {
         String solacePassword = args[2];
         System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
 
+        // Metrics of the received messages, available over JMX and printed before exiting
+        ClientMetrics metrics = new ClientMetrics("QueueConsumer");
+
         // Programmatically create the connection factory using default settings
         ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
 
@@ -70,28 +95,44 @@ public class QueueConsumer {
         // Create the queue programmatically and the corresponding messaging resource
         Queue queue = session.createQueue(QUEUE_NAME);
 
+        // Traces the received message in full on a background thread, see MessageTracer
+        MessageTracer tracer = new MessageTracer("QueueConsumer", 1, 100);
+        tracer.setFullDumps(true);
+
         // From the session, create a consumer for the destination.
         MessageConsumer messageConsumer = session.createConsumer(queue);
 
-        // Use the anonymous inner class for receiving messages asynchronously
-        messageConsumer.setMessageListener(new MessageListener() {
+        // Acknowledges the processed messages in batches of 100 or after at most a second, see AckController
+        AckController acks = new AckController(session, 100, 1000);
+        acks.setMetrics(metrics);
+
+        // Use the anonymous inner class for handling the received messages, recording them in the metrics
+        MessageListener handler = metrics.instrument(new MessageListener() {
             @Override
             public void onMessage(Message message) {
                 try {
-                    if (message instanceof TextMessage) {
+                    if (MessageBatcher.isBatch(message)) {
+                        // A batch of messages packed by MessageBatcher, acknowledged as a whole
+                        int count = MessageBatcher.unpack((BytesMessage) message, payload -> System.out.printf(
+                                "Batched message received: '%s'%n", StandardCharsets.UTF_8.decode(payload)));
+                        System.out.printf("Batch of %d messages received.%n", count);
+                    } else if (message instanceof TextMessage) {
                         System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
+                    } else if (message instanceof BytesMessage) {
+                        // Read without copying, or decompressed if it was compressed, see PayloadCompressor
+                        ByteBuffer payload = PayloadCompressor.payload((BytesMessage) message);
+                        System.out.printf("BytesMessage received: %d bytes%n", payload.remaining());
                     } else {
                         System.out.println("Message received.");
                     }
-                    System.out.printf("Message Content:%n%s%n", message.toString());
-
-                    // ACK the received message manually because of the set Session.CLIENT_ACKNOWLEDGE above
-                    message.acknowledge();
+                    tracer.trace(message);
 
+                    // The message is ACKed by the AckController once this returns, because of the set
+                    // Session.CLIENT_ACKNOWLEDGE above
                     latch.countDown(); // unblock the main thread
                 } catch (JMSException ex) {
-                    System.out.println("Error processing incoming message.");
-                    ex.printStackTrace();
+                    // Thrown on, so that the AckController recovers the session and the message is redelivered
+                    throw new RuntimeException("Error processing incoming message", ex);
                 }
             }
         });
@@ -99,8 +140,12 @@ public class QueueConsumer {
         // Start receiving messages
         connection.start();
         System.out.println("Awaiting message...");
-        // the main thread blocks at the next statement until a message received
-        latch.await();
+        // the main thread receives and handles messages until one has been processed, acknowledging overdue
+        // batches while it waits
+        acks.receive(messageConsumer, handler, () -> latch.getCount() == 0);
+        acks.close();
+        tracer.close();
+        metrics.printSummary();
 
         // Close everything in the order reversed from the opening order
         // NOTE: as the interfaces below extend AutoCloseable,
@@ -111,12 +156,299 @@ public class QueueConsumer {
         connection.close();
     }
 
+    // Consumes the queue with a pool of parallel workers until interrupted, see ConsumerPool
+    private void runPool(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int workers = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int connections = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        String keyProperty = args.length > 6 ? args[6] : null;
+        System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+
+        // The workers only count the messages, the pool acknowledges them
+        ConsumerPool pool = new ConsumerPool(connectionFactory, QUEUE_NAME, workers, connections, keyProperty,
+                message -> { });
+        pool.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                pool.close();
+            } catch (JMSException ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        System.out.printf("Consuming with %d workers%s, press Ctrl-C to exit...%n", workers,
+                keyProperty == null ? "" : " ordered by '" + keyProperty + "'");
+        latch.await();
+    }
+
+    // Consumes the queue in transactions committed in batches until interrupted, see TransactedConsumer
+    private void runTransacted(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        long maxDelayMillis = args.length > 5 ? Long.parseLong(args[5]) : 100;
+        long targetCommitMillis = args.length > 6 ? Long.parseLong(args[6]) : 0;
+        System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ClientMetrics metrics = new ClientMetrics("QueueConsumer");
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+
+        // Create a transacted session, messages are settled when the transaction commits
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageConsumer messageConsumer = session.createConsumer(queue);
+
+        // The handler only counts the messages, the consumer commits them
+        TransactedConsumer consumer = new TransactedConsumer(session, messageConsumer, batchSize, maxDelayMillis,
+                targetCommitMillis, targetCommitMillis > 0 ? batchSize * 10 : batchSize,
+                metrics.instrument(message -> { }));
+        connection.start();
+        consumer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                consumer.close();
+                System.out.println(consumer.summary());
+                metrics.printSummary();
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        System.out.printf("Consuming in transactions of %d messages or %d ms, press Ctrl-C to exit...%n",
+                batchSize, maxDelayMillis);
+        latch.await();
+    }
+
+    // Hands messages to worker threads through a ring buffer until interrupted, see ReceivePipeline
+    private void runPipeline(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int ringSize = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+        int workers = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long workMicros = args.length > 6 ? Long.parseLong(args[6]) : 0;
+        System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        // Workers finish messages out of order, so each message is acknowledged by itself
+        Session session = connection.createSession(false, JmsSession.INDIVIDUAL_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageConsumer messageConsumer = session.createConsumer(queue);
+
+        // The workers simulate handling that takes the given time and acknowledge each message
+        ReceivePipeline pipeline = new ReceivePipeline(ringSize, workers, message -> {
+            if (workMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+            }
+            try {
+                message.acknowledge();
+            } catch (JMSException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        pipeline.start();
+        messageConsumer.setMessageListener(pipeline);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.println(pipeline.interval()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                messageConsumer.close();
+                pipeline.close();
+                pipeline.interval();
+                System.out.println(pipeline.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        System.out.printf("Handling messages with %d workers and a ring of %d, press Ctrl-C to exit...%n", workers,
+                pipeline.getCapacity());
+        latch.await();
+    }
+
+    private void runAdaptive(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int minPrefetch = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int maxPrefetch = args.length > 5 ? Integer.parseInt(args[5]) : 5000;
+        long targetBufferMillis = args.length > 6 ? Long.parseLong(args[6]) : 200;
+        long maxBufferKilobytes = args.length > 7 ? Long.parseLong(args[7]) : 16384;
+        long workMicros = args.length > 8 ? Long.parseLong(args[8]) : 0;
+        System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        // Consumers start with the smallest prefetch and get more credit as the handling rate shows it is needed
+        AdaptivePrefetchPolicy prefetchPolicy = new AdaptivePrefetchPolicy(minPrefetch);
+        JmsConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        connectionFactory.setPrefetchPolicy(prefetchPolicy);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+
+        // The handler simulates handling that takes the given time
+        AdaptiveConsumer consumer = new AdaptiveConsumer(session, queue, prefetchPolicy, minPrefetch, maxPrefetch,
+                targetBufferMillis, maxBufferKilobytes * 1024, message -> {
+                    if (workMicros > 0) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+                    }
+                });
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.println(consumer.summary()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                consumer.close();
+                System.out.println(consumer.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        consumer.start();
+        System.out.printf("Adapting the prefetch between %d and %d, press Ctrl-C to exit...%n", minPrefetch,
+                maxPrefetch);
+        latch.await();
+    }
+
+    // Drops redelivered messages that were handled already, see DeduplicatingListener
+    private void runDeduplicated(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        // "-" keys on the message ID
+        String keyProperty = args.length > 4 && !"-".equals(args[4]) ? args[4] : null;
+        long windowSeconds = args.length > 5 ? Long.parseLong(args[5]) : 600;
+        long expectedKeys = args.length > 6 ? Long.parseLong(args[6]) : 1000000;
+        double falsePositiveRate = args.length > 7 ? Double.parseDouble(args[7]) : 0.001;
+        System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageConsumer messageConsumer = session.createConsumer(queue);
+
+        DuplicateFilter filter = new DuplicateFilter(expectedKeys, falsePositiveRate,
+                TimeUnit.SECONDS.toMillis(windowSeconds));
+        // Traces one in 1000 messages, at most 10 per second
+        MessageTracer tracer = new MessageTracer("QueueConsumer", 1000, 10);
+        DeduplicatingListener listener = new DeduplicatingListener(filter, keyProperty, message -> {
+            try {
+                tracer.trace(message);
+                message.acknowledge();
+            } catch (JMSException ex) {
+                System.out.println("Error processing incoming message.");
+                ex.printStackTrace();
+            }
+        });
+        messageConsumer.setMessageListener(listener);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.println(listener.summary()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                messageConsumer.close();
+                tracer.close();
+                System.out.println(listener.summary());
+                System.out.println(tracer.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        System.out.printf("Dropping duplicates by %s within %d s (%.1f MB), press Ctrl-C to exit...%n",
+                keyProperty != null ? "property '" + keyProperty + "'" : "message ID", windowSeconds,
+                filter.getMemoryBytes() / 1048576.0);
+        latch.await();
+    }
+
+    // Consumes several queues written by key in parallel, see PartitionedConsumer
+    private void runPartitioned(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int partitions = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        // Traces one in 1000 messages, at most 10 per second
+        MessageTracer tracer = new MessageTracer("QueueConsumer", 1000, 10);
+        PartitionedConsumer consumer = new PartitionedConsumer(connection, QUEUE_NAME, partitions, tracer::trace);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.println(consumer.summary()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                consumer.close();
+                tracer.close();
+                System.out.println(consumer.summary());
+                System.out.println(tracer.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        System.out.printf("Consuming queues '%s/0' to '%s/%d', press Ctrl-C to exit...%n", QUEUE_NAME, QUEUE_NAME,
+                partitions - 1);
+        latch.await();
+    }
+
     public static void main(String[] args) throws Exception {
         if (args.length < 3) {
             System.out.println("Usage: QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password>");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "pool [<workers> <connections>]");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "pool <workers> 1 <key_property>");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "transacted [<batch_size> <max_delay_ms> <target_commit_ms>]");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "pipeline [<ring_size> <workers> <work_micros>]");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "adaptive [<min_prefetch> <max_prefetch> <target_buffer_ms> <max_buffer_kb> <work_micros>]");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "dedup [<key_property|-> <window_sec> <expected_keys> <false_positive_rate>]");
+            System.out.println("       QueueConsumer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "partitioned [<partitions>]");
             System.exit(-1);
         }
-        new QueueConsumer().run(args);
+        if (args.length > 3 && "pool".equals(args[3])) {
+            new QueueConsumer().runPool(args);
+        } else if (args.length > 3 && "transacted".equals(args[3])) {
+            new QueueConsumer().runTransacted(args);
+        } else if (args.length > 3 && "pipeline".equals(args[3])) {
+            new QueueConsumer().runPipeline(args);
+        } else if (args.length > 3 && "adaptive".equals(args[3])) {
+            new QueueConsumer().runAdaptive(args);
+        } else if (args.length > 3 && "dedup".equals(args[3])) {
+            new QueueConsumer().runDeduplicated(args);
+        } else if (args.length > 3 && "partitioned".equals(args[3])) {
+            new QueueConsumer().runPartitioned(args);
+        } else {
+            new QueueConsumer().run(args);
+        }
     }
 
 }
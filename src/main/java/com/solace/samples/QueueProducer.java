@@ -24,6 +24,28 @@
 package com.solace.samples;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsQueue;
+
+import com.solace.samples.features.ClientMetrics;
+import com.solace.samples.features.ConnectionPool;
+import com.solace.samples.features.FailoverPublisher;
+import com.solace.samples.features.HashRing;
+import com.solace.samples.features.MessageBatcher;
+import com.solace.samples.features.MessageSpool;
+import com.solace.samples.features.PartitionedProducer;
+import com.solace.samples.features.PayloadCodec;
+import com.solace.samples.features.PayloadCompressor;
+import com.solace.samples.features.RateLimiter;
+import com.solace.samples.features.SpoolingProducer;
+import com.solace.samples.features.TransactedPublisher;
+import com.solace.samples.features.WindowedPublisher;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -51,15 +73,19 @@ public class QueueProducer {
 
         System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", solaceHost);
 
+        // Metrics of the sends, available over JMX and printed before exiting
+        ClientMetrics metrics = new ClientMetrics("QueueProducer");
+
         // Programmatically create the connection factory using default settings
         ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword,
                 solaceHost);
 
-        // Create connection to the Solace messaging
-        Connection connection = connectionFactory.createConnection();
+        // Pool the connection, session and producer, so that further sends would reuse them, see ConnectionPool
+        ConnectionPool pool = new ConnectionPool(connectionFactory);
 
-        // Create a non-transacted, auto ACK session.
-        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        // Borrow a non-transacted, auto ACK session, creating the connection to the Solace messaging
+        ConnectionPool.PooledSession pooledSession = pool.borrow(10, TimeUnit.SECONDS);
+        Session session = pooledSession.getSession();
 
         System.out.printf("Connected with username '%s'.%n", solaceUsername);
 
@@ -67,8 +93,8 @@ public class QueueProducer {
         // or the QueueConsumer
         Queue queue = session.createQueue(QUEUE_NAME);
 
-        // Create the message producer
-        MessageProducer messageProducer = session.createProducer(null);
+        // Get the session's message producer for the queue, recording its sends in the metrics
+        MessageProducer messageProducer = metrics.instrument(pooledSession.getProducer(queue));
 
         // Create a text message.
         TextMessage message = session.createTextMessage("Hello world Queues!");
@@ -77,26 +103,365 @@ public class QueueProducer {
 
         // Send the message
         // NOTE: JMS Message Priority is not supported by the Solace Message Bus
-        messageProducer.send(queue, message, DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY,
+        messageProducer.send(message, DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY,
                 Message.DEFAULT_TIME_TO_LIVE);
 
         System.out.println("Sent successfully. Exiting...");
+        metrics.printSummary();
 
-        // Close everything in the order reversed from the opening order
-        // NOTE: as the interfaces below extend AutoCloseable,
+        // Return the session with its producer to the pool, then close the pool and its connection
+        // NOTE: as both extend AutoCloseable,
         // with them it's possible to use the "try-with-resources" Java statement
         // see details at https://docs.oracle.com/javase/tutorial/essential/exceptions/tryResourceClose.html
+        pooledSession.close();
+        pool.close();
+    }
+
+    // Sends persistent messages asynchronously with a window of unsettled messages, see WindowedPublisher
+    private void runWindowed(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 4 ? Integer.parseInt(args[4]) : 10000;
+        int windowSize = args.length > 5 ? Integer.parseInt(args[5]) : 256;
+
+        System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword,
+                solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+
+        // A producer bound to the queue, so that the link is not looked up again for every send
+        MessageProducer messageProducer = session.createProducer(queue);
+
+        WindowedPublisher publisher = new WindowedPublisher(messageProducer, windowSize,
+                new WindowedPublisher.DeliveryListener() {
+                    @Override
+                    public void onSettled(long sequence, Message message) {
+                    }
+
+                    @Override
+                    public void onFailed(long sequence, Message message, Exception exception) {
+                        System.out.printf("Message #%d was not accepted by the broker: %s%n", sequence, exception);
+                    }
+                });
+
+        System.out.printf("Sending %d messages to queue '%s' with a window of %d...%n", messageCount,
+                queue.toString(), windowSize);
+        long start = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            // A message must not be reused until its send has completed, so create one per send
+            TextMessage message = session.createTextMessage("Hello world Queues! #" + i);
+            publisher.send(message);
+        }
+        if (!publisher.flush(30, TimeUnit.SECONDS)) {
+            System.out.printf("%d messages still unsettled after 30 seconds.%n", publisher.getInFlight());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Settled %d, failed %d in %.2f s (%.0f msgs/s). Exiting...%n",
+                publisher.getSettledCount(), publisher.getFailedCount(), seconds,
+                publisher.getSettledCount() / seconds);
+
         messageProducer.close();
         session.close();
         connection.close();
     }
 
+    // Sends persistent messages with compressed payloads, see PayloadCompressor
+    private void runCompressed(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        PayloadCodec codec = PayloadCodec.forName(args.length > 4 ? args[4] : "lz4");
+        if (codec == null) {
+            System.out.printf("Unknown codec '%s'.%n", args[4]);
+            System.exit(-1);
+        }
+        int minimumSize = args.length > 5 ? Integer.parseInt(args[5]) : PayloadCompressor.DEFAULT_MINIMUM_SIZE;
+        int messageCount = args.length > 6 ? Integer.parseInt(args[6]) : 1000;
+        int payloadSize = args.length > 7 ? Integer.parseInt(args[7]) : 65536;
+
+        System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ClientMetrics metrics = new ClientMetrics("QueueProducer");
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword,
+                solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageProducer messageProducer = metrics.instrument(session.createProducer(queue));
+
+        // Repeated text, which compresses about as well as typical JSON or XML documents
+        byte[] payload = new byte[payloadSize];
+        byte[] text = "Hello world Queues! ".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < payloadSize; i++) {
+            payload[i] = text[i % text.length];
+        }
+        PayloadCompressor compressor = new PayloadCompressor(codec, minimumSize);
+
+        System.out.printf("Sending %d messages of %d bytes to queue '%s' with %s compression...%n", messageCount,
+                payloadSize, queue.toString(), codec.getName());
+        long start = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            messageProducer.send(compressor.createMessage(session, buffer -> buffer.put(payload)),
+                    DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Sent %d messages in %.2f s (%.0f msgs/s). Exiting...%n", messageCount, seconds,
+                messageCount / seconds);
+        System.out.println(compressor.summary());
+        metrics.printSummary();
+
+        messageProducer.close();
+        session.close();
+        connection.close();
+    }
+
+    // Sends many small messages packed into batches, see MessageBatcher
+    private void runBatched(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 4 ? Integer.parseInt(args[4]) : 100000;
+        int maxMessages = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        int maxBytes = args.length > 6 ? Integer.parseInt(args[6]) : 64 * 1024;
+        long lingerMillis = args.length > 7 ? Long.parseLong(args[7]) : 10;
+        System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ClientMetrics metrics = new ClientMetrics("QueueProducer");
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageProducer messageProducer = metrics.instrument(session.createProducer(queue));
+        messageProducer.setDeliveryMode(DeliveryMode.PERSISTENT);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MessageBatcher batcher = new MessageBatcher(session, messageProducer, scheduler, maxMessages, maxBytes,
+                lingerMillis);
+        System.out.printf("Sending %d messages to queue '%s' in batches of up to %d messages, %d bytes or %d ms...%n",
+                messageCount, queue.toString(), maxMessages, maxBytes, lingerMillis);
+        for (int i = 0; i < messageCount; i++) {
+            batcher.add(("Hello world Queues! #" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        batcher.close();
+        scheduler.shutdown();
+        System.out.println(batcher.summary());
+        metrics.printSummary();
+
+        messageProducer.close();
+        session.close();
+        connection.close();
+    }
+
+    // Sends persistent messages in transactions committed in batches, see TransactedPublisher
+    private void runTransacted(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 4 ? Integer.parseInt(args[4]) : 10000;
+        int batchSize = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        long maxDelayMillis = args.length > 6 ? Long.parseLong(args[6]) : 100;
+        long targetCommitMillis = args.length > 7 ? Long.parseLong(args[7]) : 0;
+
+        System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ClientMetrics metrics = new ClientMetrics("QueueProducer");
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword,
+                solaceHost);
+        Connection connection = connectionFactory.createConnection();
+
+        // Create a transacted session, the acknowledge mode is ignored
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageProducer messageProducer = metrics.instrument(session.createProducer(queue));
+        messageProducer.setDeliveryMode(DeliveryMode.PERSISTENT);
+
+        // With a target commit latency the batch size adapts, up to 10 times the initial size
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        TransactedPublisher publisher = new TransactedPublisher(session, messageProducer, scheduler, batchSize,
+                maxDelayMillis, targetCommitMillis, targetCommitMillis > 0 ? batchSize * 10 : batchSize);
+
+        System.out.printf("Sending %d messages to queue '%s' in transactions of %d messages or %d ms...%n",
+                messageCount, queue.toString(), batchSize, maxDelayMillis);
+        long start = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            // Kept by the publisher until committed, so create one per send
+            publisher.send(session.createTextMessage("Hello world Queues! #" + i));
+        }
+        publisher.close();
+        scheduler.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Sent %d messages in %.2f s (%.0f msgs/s). Exiting...%n", messageCount, seconds,
+                messageCount / seconds);
+        System.out.println(publisher.summary());
+        metrics.printSummary();
+
+        messageProducer.close();
+        session.close();
+        connection.close();
+    }
+
+    // Sends persistent messages through a local write-ahead spool that rides out broker outages, see SpoolingProducer
+    private void runSpooled(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        File spoolDirectory = new File(args.length > 4 ? args[4] : "spool");
+        MessageSpool.FsyncPolicy fsync = MessageSpool.FsyncPolicy.valueOf(
+                (args.length > 5 ? args[5] : "interval").toUpperCase(Locale.ROOT));
+        int messageCount = args.length > 6 ? Integer.parseInt(args[6]) : 10000;
+        int messagesPerSecond = args.length > 7 ? Integer.parseInt(args[7]) : 1000;
+
+        System.out.printf("QueueProducer is spooling to %s for Solace messaging at %s...%n", spoolDirectory,
+                solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword,
+                solaceHost);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MessageSpool spool = new MessageSpool(spoolDirectory, MessageSpool.DEFAULT_SEGMENT_SIZE,
+                MessageSpool.DEFAULT_MAX_SEGMENTS, fsync, 100, scheduler);
+        // Payloads left unsettled by a previous run are sent first
+        SpoolingProducer producer = new SpoolingProducer(connectionFactory, new JmsQueue(QUEUE_NAME), spool, 100);
+        producer.start();
+
+        System.out.printf("Sending %d messages at %d msgs/s to queue '%s'...%n", messageCount, messagesPerSecond,
+                QUEUE_NAME);
+        RateLimiter limiter = new RateLimiter(messagesPerSecond);
+        for (int i = 0; i < messageCount; i++) {
+            limiter.acquire();
+            producer.send(("Hello world Queues! #" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        // Unsettled payloads stay in the spool when interrupted with Ctrl-C
+        while (!producer.awaitDrained(1, TimeUnit.SECONDS)) {
+            System.out.println(producer.summary());
+        }
+        producer.close();
+        System.out.println(producer.summary());
+        spool.close();
+        scheduler.shutdown();
+    }
+
+    // Sends persistent messages with a warm standby producer on a second broker, see FailoverPublisher
+    private void runFailover(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        if (args.length < 5) {
+            System.out.println("The failover mode needs the URL of the standby broker.");
+            System.exit(-1);
+        }
+        String standbyHost = args[4];
+        int messageCount = args.length > 5 ? Integer.parseInt(args[5]) : 10000;
+        int messagesPerSecond = args.length > 6 ? Integer.parseInt(args[6]) : 1000;
+
+        System.out.printf("QueueProducer is connecting to Solace messaging at %s with a standby at %s...%n",
+                solaceHost, standbyHost);
+
+        ConnectionFactory primaryFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        ConnectionFactory standbyFactory = new JmsConnectionFactory(solaceUsername, solacePassword, standbyHost);
+        FailoverPublisher publisher = new FailoverPublisher(primaryFactory, standbyFactory, new JmsQueue(QUEUE_NAME),
+                FailoverPublisher.DEFAULT_MAX_UNSETTLED);
+        publisher.start();
+
+        System.out.printf("Sending %d messages at %d msgs/s to queue '%s'...%n", messageCount, messagesPerSecond,
+                QUEUE_NAME);
+        RateLimiter limiter = new RateLimiter(messagesPerSecond);
+        for (int i = 0; i < messageCount; i++) {
+            limiter.acquire();
+            publisher.send(("Hello world Queues! #" + i).getBytes(StandardCharsets.UTF_8));
+            if (i % messagesPerSecond == messagesPerSecond - 1) {
+                System.out.println(publisher.summary());
+            }
+        }
+        if (!publisher.flush(30, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for unsettled messages.");
+        }
+        System.out.println(publisher.summary());
+        publisher.close();
+    }
+
+    // Spreads persistent messages over several queues by key, see PartitionedProducer
+    private void runPartitioned(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int partitions = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        int messageCount = args.length > 5 ? Integer.parseInt(args[5]) : 10000;
+        int keyCount = args.length > 6 ? Integer.parseInt(args[6]) : 1000;
+
+        System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword,
+                solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        PartitionedProducer producer = new PartitionedProducer(connection, QUEUE_NAME, partitions, 100);
+        HashRing ring = producer.getRing();
+        System.out.printf("Going to %d or %d partitions would move %.1f%% or %.1f%% of the keys.%n",
+                partitions - 1, partitions + 1,
+                partitions > 1 ? ring.movedShare(new HashRing(partitions - 1), 10000) * 100 : 100.0,
+                ring.movedShare(new HashRing(partitions + 1), 10000) * 100);
+
+        System.out.printf("Sending %d messages with %d keys to queues '%s/0' to '%s/%d'...%n", messageCount,
+                keyCount, QUEUE_NAME, QUEUE_NAME, partitions - 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            String text = "Hello world Queues! #" + i;
+            producer.send("key-" + (i % keyCount), session -> session.createTextMessage(text));
+        }
+        if (!producer.flush(30, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for unsettled messages.");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Sent %d messages in %.2f s (%.0f msgs/s). Exiting...%n", messageCount, seconds,
+                messageCount / seconds);
+        System.out.println(producer.summary());
+        producer.close();
+        connection.close();
+    }
+
     public static void main(String[] args) throws Exception {
         if (args.length < 3) {
             System.out.println("Usage: QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password>");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "window [<message_count> <window_size>]");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "compress [<deflate|lz4> <min_compressed_bytes> <message_count> <payload_bytes>]");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "batch [<message_count> <max_batch_messages> <max_batch_bytes> <linger_ms>]");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "transacted [<message_count> <batch_size> <max_delay_ms> <target_commit_ms>]");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "spool [<spool_dir> <always|interval|never> <message_count> <msgs_per_sec>]");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "failover amqp://<standby_ip:amqp_port> [<message_count> <msgs_per_sec>]");
+            System.out.println("       QueueProducer amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "partitioned [<partitions> <message_count> <keys>]");
             System.exit(-1);
         }
-        new QueueProducer().run(args);
+        if (args.length > 3 && "window".equals(args[3])) {
+            new QueueProducer().runWindowed(args);
+        } else if (args.length > 3 && "compress".equals(args[3])) {
+            new QueueProducer().runCompressed(args);
+        } else if (args.length > 3 && "batch".equals(args[3])) {
+            new QueueProducer().runBatched(args);
+        } else if (args.length > 3 && "transacted".equals(args[3])) {
+            new QueueProducer().runTransacted(args);
+        } else if (args.length > 3 && "spool".equals(args[3])) {
+            new QueueProducer().runSpooled(args);
+        } else if (args.length > 3 && "failover".equals(args[3])) {
+            new QueueProducer().runFailover(args);
+        } else if (args.length > 3 && "partitioned".equals(args[3])) {
+            new QueueProducer().runPartitioned(args);
+        } else {
+            new QueueProducer().run(args);
+        }
     }
 
 }
@@ -23,6 +23,11 @@
 
 package com.solace.samples;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.DeliveryMode;
@@ -32,6 +37,16 @@ import javax.jms.Session;
 import javax.jms.TextMessage;
 import javax.jms.Topic;
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsTopic;
+
+import com.solace.samples.features.ClientMetrics;
+import com.solace.samples.features.ConnectionPool;
+import com.solace.samples.features.LatencyPublisher;
+import com.solace.samples.features.LoadGenerator;
+import com.solace.samples.features.MessageBatcher;
+import com.solace.samples.features.PayloadCodec;
+import com.solace.samples.features.PayloadCompressor;
+import com.solace.samples.features.StripedPublisher;
 
 /**
  * Publishes a messages to a topic using Apache Qpid JMS 1.1 API over AMQP 1.0. Solace messaging is used as the
@@ -49,22 +64,26 @@ public class TopicPublisher {
         String solacePassword = args[2];
         System.out.printf("TopicPublisher is connecting to Solace messaging at %s...%n", solaceHost);
 
+        // Metrics of the sends, available over JMX and printed before exiting
+        ClientMetrics metrics = new ClientMetrics("TopicPublisher");
+
         // Programmatically create the connection factory using default settings
         ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
 
-        // Create connection to the Solace messaging
-        Connection connection = connectionFactory.createConnection();
+        // Pool the connection, session and producer, so that further sends would reuse them, see ConnectionPool
+        ConnectionPool pool = new ConnectionPool(connectionFactory);
 
-        // Create a non-transacted, auto ACK session.
-        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        // Borrow a non-transacted, auto ACK session, creating the connection to the Solace messaging
+        ConnectionPool.PooledSession pooledSession = pool.borrow(10, TimeUnit.SECONDS);
+        Session session = pooledSession.getSession();
 
         System.out.printf("Connected to the Solace messaging with client username '%s'.%n", solaceUsername);
 
         // Create the publishing topic programmatically
         Topic topic = session.createTopic(TOPIC_NAME);
 
-        // Create the message producer
-        MessageProducer messageProducer = session.createProducer(null);
+        // Get the session's message producer for the topic, recording its sends in the metrics
+        MessageProducer messageProducer = metrics.instrument(pooledSession.getProducer(topic));
 
         // Create the message
         TextMessage message = session.createTextMessage("Hello world!");
@@ -72,25 +91,178 @@ public class TopicPublisher {
         System.out.printf("Sending message '%s' to topic '%s'...%n", message.getText(), topic.toString());
 
         // Send the message
-        messageProducer.send(topic, message,
+        messageProducer.send(message,
                 DeliveryMode.NON_PERSISTENT,
                 Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
         System.out.println("Sent successfully. Exiting...");
+        metrics.printSummary();
 
-        // Close everything in the order reversed from the opening order
-        // NOTE: as the interfaces below extend AutoCloseable,
+        // Return the session with its producer to the pool, then close the pool and its connection
+        // NOTE: as both extend AutoCloseable,
         // with them it's possible to use the "try-with-resources" Java statement
         // see details at https://docs.oracle.com/javase/tutorial/essential/exceptions/tryResourceClose.html
+        pooledSession.close();
+        pool.close();
+    }
+
+    // Publishes at a sustained rate for load generation, see LoadGenerator
+    private void runLoad(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messagesPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        int durationSeconds = args.length > 5 ? Integer.parseInt(args[5]) : 60;
+        int payloadSize = args.length > 6 ? Integer.parseInt(args[6]) : 100;
+        int threads = args.length > 7 ? Integer.parseInt(args[7]) : 1;
+        String payloadType = args.length > 8 ? args[8] : "text";
+        int minimumSize = args.length > 9 ? Integer.parseInt(args[9]) : PayloadCompressor.DEFAULT_MINIMUM_SIZE;
+        System.out.printf("TopicPublisher is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic(TOPIC_NAME);
+
+        LoadGenerator generator = new LoadGenerator(connection, topic, messagesPerSecond, durationSeconds,
+                payloadSize, threads);
+        // Either text, bytes or the name of a codec to send compressed bytes
+        PayloadCodec codec = PayloadCodec.forName(payloadType);
+        if (codec != null) {
+            generator.setCompressor(new PayloadCompressor(codec, minimumSize));
+        } else {
+            generator.setBinaryPayload("bytes".equals(payloadType));
+        }
+        generator.run();
+
+        session.close();
+        connection.close();
+    }
+
+    // Publishes messages stamped for latency measurement by TopicSubscriber, see LatencyPublisher
+    private void runLatency(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messagesPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 10000;
+        int durationSeconds = args.length > 5 ? Integer.parseInt(args[5]) : 60;
+        int payloadSize = args.length > 6 ? Integer.parseInt(args[6]) : 100;
+        System.out.printf("TopicPublisher is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic(TOPIC_NAME);
+
+        System.out.printf("Publishing %d stamped msgs/s to topic '%s' for %d seconds...%n", messagesPerSecond,
+                topic.toString(), durationSeconds);
+        long sent = new LatencyPublisher(connection, topic, messagesPerSecond, durationSeconds, payloadSize).run();
+        System.out.printf("Sent %d messages. Exiting...%n", sent);
+
+        session.close();
+        connection.close();
+    }
+
+    // Sends many small messages packed into batches, see MessageBatcher
+    private void runBatched(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 4 ? Integer.parseInt(args[4]) : 100000;
+        int maxMessages = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        int maxBytes = args.length > 6 ? Integer.parseInt(args[6]) : 64 * 1024;
+        long lingerMillis = args.length > 7 ? Long.parseLong(args[7]) : 10;
+        System.out.printf("TopicPublisher is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ClientMetrics metrics = new ClientMetrics("TopicPublisher");
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic(TOPIC_NAME);
+        MessageProducer messageProducer = metrics.instrument(session.createProducer(topic));
+        messageProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MessageBatcher batcher = new MessageBatcher(session, messageProducer, scheduler, maxMessages, maxBytes,
+                lingerMillis);
+        System.out.printf("Sending %d messages to topic '%s' in batches of up to %d messages, %d bytes or %d ms...%n",
+                messageCount, topic.toString(), maxMessages, maxBytes, lingerMillis);
+        for (int i = 0; i < messageCount; i++) {
+            batcher.add(("Hello world! #" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        batcher.close();
+        scheduler.shutdown();
+        System.out.println(batcher.summary());
+        metrics.printSummary();
+
         messageProducer.close();
         session.close();
         connection.close();
     }
 
+    // Publishes over several connections, see StripedPublisher
+    private void runStriped(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int stripes = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        boolean keyHash = args.length > 5 && "key-hash".equals(args[5]);
+        int messageCount = args.length > 6 ? Integer.parseInt(args[6]) : 100000;
+        int keys = args.length > 7 ? Integer.parseInt(args[7]) : 16;
+        System.out.printf("TopicPublisher is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Topic topic = new JmsTopic(TOPIC_NAME);
+
+        try (StripedPublisher publisher = new StripedPublisher(connectionFactory, topic, stripes,
+                keyHash ? StripedPublisher.Routing.KEY_HASH : StripedPublisher.Routing.ROUND_ROBIN,
+                DeliveryMode.NON_PERSISTENT)) {
+            System.out.printf("Sending %d messages with %d keys over %d connections %s...%n", messageCount, keys,
+                    stripes, keyHash ? "in order per key" : "round-robin");
+            long start = System.nanoTime();
+            for (int i = 0; i < messageCount; i++) {
+                // Messages with the same key go over the same connection with key-hash routing
+                String key = "key-" + (i % keys);
+                String text = "Hello world! #" + i;
+                publisher.send(key, session -> {
+                    TextMessage message = session.createTextMessage(text);
+                    message.setStringProperty("Key", key);
+                    return message;
+                });
+            }
+            if (!publisher.flush(30, TimeUnit.SECONDS)) {
+                System.out.println("Timed out waiting for outstanding sends to complete.");
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Sent %d messages in %.2f s (%.0f msgs/s). Exiting...%n", messageCount, seconds,
+                    publisher.getCompletedCount() / seconds);
+            System.out.println(publisher.summary());
+        }
+    }
+
     public static void main(String[] args) throws Exception {
-        if (args.length < 1) {
+        if (args.length < 3) {
             System.out.println("Usage: TopicPublisher amqp://<msg_backbone_ip:amqp_port> <username> <password>");
+            System.out.println("       TopicPublisher amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "load [<msgs_per_sec> <duration_sec> <payload_bytes> <threads> "
+                    + "<text|bytes|deflate|lz4> <min_compressed_bytes>]");
+            System.out.println("       TopicPublisher amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "latency [<msgs_per_sec> <duration_sec> <payload_bytes>]");
+            System.out.println("       TopicPublisher amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "batch [<message_count> <max_batch_messages> <max_batch_bytes> <linger_ms>]");
+            System.out.println("       TopicPublisher amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "striped [<stripes> <round-robin|key-hash> <message_count> <keys>]");
             System.exit(-1);
         }
-        new TopicPublisher().run(args);
+        if (args.length > 3 && "load".equals(args[3])) {
+            new TopicPublisher().runLoad(args);
+        } else if (args.length > 3 && "latency".equals(args[3])) {
+            new TopicPublisher().runLatency(args);
+        } else if (args.length > 3 && "batch".equals(args[3])) {
+            new TopicPublisher().runBatched(args);
+        } else if (args.length > 3 && "striped".equals(args[3])) {
+            new TopicPublisher().runStriped(args);
+        } else {
+            new TopicPublisher().run(args);
+        }
     }
 }
@@ -23,8 +23,17 @@
 
 package com.solace.samples;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
@@ -37,6 +46,16 @@ import javax.jms.Topic;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
 
+import com.solace.samples.features.AdaptiveConsumer;
+import com.solace.samples.features.AdaptivePrefetchPolicy;
+import com.solace.samples.features.ClientMetrics;
+import com.solace.samples.features.LatencyRecorder;
+import com.solace.samples.features.MessageBatcher;
+import com.solace.samples.features.MessageTracer;
+import com.solace.samples.features.PayloadCompressor;
+import com.solace.samples.features.ReceivePipeline;
+import com.solace.samples.features.TopicDispatcher;
+
 /**
  * Subscribes to messages published to a topic using Apache Qpid JMS 1.1 over AMQP 1.0. Solace messaging is used as the
  * message broker.
@@ -56,6 +75,9 @@ public class TopicSubscriber {
         String solacePassword = args[2];
         System.out.printf("TopicSubscriber is connecting to Solace messaging at %s...%n", solaceHost);
 
+        // Metrics of the received messages, available over JMX and printed before exiting
+        ClientMetrics metrics = new ClientMetrics("TopicSubscriber");
+
         // Programmatically create the connection factory using default settings
         ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
 
@@ -70,33 +92,48 @@ public class TopicSubscriber {
         // Create the subscription topic programmatically
         Topic topic = session.createTopic(TOPIC_NAME);
 
+        // Traces the received message in full on a background thread, see MessageTracer
+        MessageTracer tracer = new MessageTracer("TopicSubscriber", 1, 100);
+        tracer.setFullDumps(true);
+
         // Create the message consumer for the subscription topic
         MessageConsumer messageConsumer = session.createConsumer(topic);
 
-        // Use the anonymous inner class for receiving messages asynchronously
-        messageConsumer.setMessageListener(new MessageListener() {
+        // Use the anonymous inner class for receiving messages asynchronously, recording them in the metrics
+        messageConsumer.setMessageListener(metrics.instrument(new MessageListener() {
             @Override
             public void onMessage(Message message) {
                 try {
-                    if (message instanceof TextMessage) {
+                    if (MessageBatcher.isBatch(message)) {
+                        // A batch of messages packed by MessageBatcher, received as a whole
+                        int count = MessageBatcher.unpack((BytesMessage) message, payload -> System.out.printf(
+                                "Batched message received: '%s'%n", StandardCharsets.UTF_8.decode(payload)));
+                        System.out.printf("Batch of %d messages received.%n", count);
+                    } else if (message instanceof TextMessage) {
                         System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
+                    } else if (message instanceof BytesMessage) {
+                        // Read without copying, or decompressed if it was compressed, see PayloadCompressor
+                        ByteBuffer payload = PayloadCompressor.payload((BytesMessage) message);
+                        System.out.printf("BytesMessage received: %d bytes%n", payload.remaining());
                     } else {
                         System.out.println("Message received.");
                     }
-                    System.out.printf("Message Content:%n%s%n", message.toString());
+                    tracer.trace(message);
                     latch.countDown(); // unblock the main thread
                 } catch (Exception ex) {
                     System.out.println("Error processing incoming message.");
                     ex.printStackTrace();
                 }
             }
-        });
+        }));
 
         // Start receiving messages
         connection.start();
         System.out.println("Awaiting message...");
         // the main thread blocks at the next statement until a message received
         latch.await();
+        tracer.close();
+        metrics.printSummary();
 
         // Close everything in the order reversed from the opening order
         // NOTE: as the interfaces below extend AutoCloseable,
@@ -107,12 +144,200 @@ public class TopicSubscriber {
         connection.close();
     }
 
+    // Records the latency of messages stamped by TopicPublisher until interrupted, see LatencyRecorder
+    private void runLatency(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        File logDirectory = args.length > 4 ? new File(args[4]) : null;
+        System.out.printf("TopicSubscriber is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic(TOPIC_NAME);
+        MessageConsumer messageConsumer = session.createConsumer(topic);
+
+        LatencyRecorder recorder = new LatencyRecorder("one-way", logDirectory);
+        messageConsumer.setMessageListener(recorder);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                connection.close();
+            } catch (JMSException ex) {
+                ex.printStackTrace();
+            }
+            recorder.close();
+        }));
+
+        connection.start();
+        System.out.println("Recording latency, press Ctrl-C to exit...");
+        latch.await();
+    }
+
+    // Hands messages to worker threads through a ring buffer until interrupted, see ReceivePipeline
+    private void runPipeline(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int ringSize = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+        int workers = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long workMicros = args.length > 6 ? Long.parseLong(args[6]) : 0;
+        System.out.printf("TopicSubscriber is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic(TOPIC_NAME);
+        MessageConsumer messageConsumer = session.createConsumer(topic);
+
+        // The workers simulate handling that takes the given time
+        ReceivePipeline pipeline = new ReceivePipeline(ringSize, workers, message -> {
+            if (workMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+            }
+        });
+        pipeline.start();
+        messageConsumer.setMessageListener(pipeline);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.println(pipeline.interval()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                messageConsumer.close();
+                pipeline.close();
+                pipeline.interval();
+                System.out.println(pipeline.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        System.out.printf("Handling messages with %d workers and a ring of %d, press Ctrl-C to exit...%n", workers,
+                pipeline.getCapacity());
+        latch.await();
+    }
+
+    private void runAdaptive(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int minPrefetch = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int maxPrefetch = args.length > 5 ? Integer.parseInt(args[5]) : 5000;
+        long targetBufferMillis = args.length > 6 ? Long.parseLong(args[6]) : 200;
+        long maxBufferKilobytes = args.length > 7 ? Long.parseLong(args[7]) : 16384;
+        long workMicros = args.length > 8 ? Long.parseLong(args[8]) : 0;
+        System.out.printf("TopicSubscriber is connecting to Solace messaging at %s...%n", solaceHost);
+
+        // Consumers start with the smallest prefetch and get more credit as the handling rate shows it is needed
+        AdaptivePrefetchPolicy prefetchPolicy = new AdaptivePrefetchPolicy(minPrefetch);
+        JmsConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        connectionFactory.setPrefetchPolicy(prefetchPolicy);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic(TOPIC_NAME);
+
+        // The handler simulates handling that takes the given time
+        AdaptiveConsumer consumer = new AdaptiveConsumer(session, topic, prefetchPolicy, minPrefetch, maxPrefetch,
+                targetBufferMillis, maxBufferKilobytes * 1024, message -> {
+                    if (workMicros > 0) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+                    }
+                });
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.println(consumer.summary()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                consumer.close();
+                System.out.println(consumer.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        consumer.start();
+        System.out.printf("Adapting the prefetch between %d and %d, press Ctrl-C to exit...%n", minPrefetch,
+                maxPrefetch);
+        latch.await();
+    }
+
+    // Fans the messages of one wildcard subscription out to many local handlers, see TopicDispatcher
+    private void runDispatch(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int handlerCount = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        System.out.printf("TopicSubscriber is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        // One broker subscription for all handlers
+        TopicDispatcher dispatcher = new TopicDispatcher(session, "T/GettingStarted/>");
+
+        // Traces one in 1000 messages, at most 10 per second
+        MessageTracer tracer = new MessageTracer("TopicSubscriber", 1000, 10);
+        dispatcher.subscribe(TOPIC_NAME, tracer::trace);
+        // The other handlers count the messages matching their subscription
+        LongAdder wildcardCount = new LongAdder();
+        dispatcher.subscribe("T/GettingStarted/*", message -> wildcardCount.increment());
+        dispatcher.subscribe("T/GettingStarted/pub*", message -> wildcardCount.increment());
+        LongAdder deviceCount = new LongAdder();
+        for (int i = 0; i < handlerCount; i++) {
+            dispatcher.subscribe("T/GettingStarted/device/" + i + "/>", message -> deviceCount.increment());
+        }
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.printf("%s, %d wildcard and %d device deliveries%n",
+                dispatcher.summary(), wildcardCount.sum(), deviceCount.sum()), 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                reporter.shutdown();
+                dispatcher.close();
+                tracer.close();
+                System.out.println(dispatcher.summary());
+                System.out.println(tracer.summary());
+                connection.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+
+        connection.start();
+        System.out.printf("Dispatching to %d handlers, press Ctrl-C to exit...%n", dispatcher.getHandlerCount());
+        latch.await();
+    }
+
     public static void main(String[] args) throws Exception {
         if (args.length < 3) {
             System.out.println("Usage: TopicSubscriber amqp://<msg_backbone_ip:amqp_port> <username> <password>");
+            System.out.println("       TopicSubscriber amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "latency [<log_dir>]");
+            System.out.println("       TopicSubscriber amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "pipeline [<ring_size> <workers> <work_micros>]");
+            System.out.println("       TopicSubscriber amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "adaptive [<min_prefetch> <max_prefetch> <target_buffer_ms> <max_buffer_kb> <work_micros>]");
+            System.out.println("       TopicSubscriber amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "dispatch [<handlers>]");
             System.exit(-1);
         }
-        new TopicSubscriber().run(args);
+        if (args.length > 3 && "latency".equals(args[3])) {
+            new TopicSubscriber().runLatency(args);
+        } else if (args.length > 3 && "pipeline".equals(args[3])) {
+            new TopicSubscriber().runPipeline(args);
+        } else if (args.length > 3 && "adaptive".equals(args[3])) {
+            new TopicSubscriber().runAdaptive(args);
+        } else if (args.length > 3 && "dispatch".equals(args[3])) {
+            new TopicSubscriber().runDispatch(args);
+        } else {
+            new TopicSubscriber().run(args);
+        }
     }
 
 }
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: AckBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsSession;
+
+/**
+ * Compares the consume throughput of acknowledging every message with batched acknowledgements through an
+ * {@link AckController}, in both session-wide and individual acknowledgement mode.
+ *
+ * For every mode the queue is first filled with persistent messages and then drained by a consumer that does nothing
+ * but acknowledge, so the difference between the modes is the cost of the acknowledgements.
+ */
+public class AckBenchmark {
+
+    final String QUEUE_NAME = "Q/tutorial";
+
+    private void run(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        long maxDelayMillis = args.length > 5 ? Long.parseLong(args[5]) : 100;
+        System.out.printf("AckBenchmark is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Connection connection = connectionFactory.createConnection();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        connection.start();
+
+        double perMessage = consume(connection, scheduler, messageCount, Session.CLIENT_ACKNOWLEDGE, 1, 0);
+        double batchedSession = consume(connection, scheduler, messageCount, Session.CLIENT_ACKNOWLEDGE, batchSize,
+                maxDelayMillis);
+        double batchedIndividual = consume(connection, scheduler, messageCount, JmsSession.INDIVIDUAL_ACKNOWLEDGE,
+                batchSize, maxDelayMillis);
+
+        System.out.printf("per-message ack:                  %10.0f msgs/s%n", perMessage);
+        System.out.printf("batched session ack (%5d):      %10.0f msgs/s%n", batchSize, batchedSession);
+        System.out.printf("batched individual ack (%5d):   %10.0f msgs/s%n", batchSize, batchedIndividual);
+
+        scheduler.shutdown();
+        connection.close();
+    }
+
+    private double consume(Connection connection, ScheduledExecutorService scheduler, int messageCount, int ackMode,
+            int batchSize, long maxDelayMillis) throws Exception {
+        fill(connection, messageCount);
+
+        Session session = connection.createSession(false, ackMode);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageConsumer consumer = session.createConsumer(queue);
+        CountDownLatch received = new CountDownLatch(messageCount);
+        long start;
+        try (AckController acks = new AckController(scheduler, session, batchSize, Math.max(1, maxDelayMillis))) {
+            start = System.nanoTime();
+            consumer.setMessageListener(acks.wrap(message -> received.countDown()));
+            if (!received.await(5, TimeUnit.MINUTES)) {
+                throw new JMSException("Timed out with " + received.getCount() + " messages left");
+            }
+            consumer.setMessageListener(null);
+        }
+        double rate = messageCount / ((System.nanoTime() - start) / 1e9);
+        consumer.close();
+        session.close();
+        return rate;
+    }
+
+    private void fill(Connection connection, int messageCount) throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(QUEUE_NAME);
+        MessageProducer producer = session.createProducer(queue);
+        WindowedPublisher publisher = new WindowedPublisher(producer, 256, new WindowedPublisher.DeliveryListener() {
+            @Override
+            public void onSettled(long sequence, Message message) {
+            }
+
+            @Override
+            public void onFailed(long sequence, Message message, Exception exception) {
+                System.out.printf("Message #%d was not accepted by the broker: %s%n", sequence, exception);
+            }
+        });
+        for (int i = 0; i < messageCount; i++) {
+            publisher.send(session.createTextMessage("Ack benchmark #" + i));
+        }
+        publisher.flush(1, TimeUnit.MINUTES);
+        producer.close();
+        session.close();
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: AckBenchmark amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "[<message_count> <batch_size> <max_delay_ms>]");
+            System.exit(-1);
+        }
+        new AckBenchmark().run(args);
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: AckController
+ */
+
+package com.solace.samples.features;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+/**
+ * Acknowledges the messages of one consumer in batches: after every N processed messages or once the oldest
+ * unacknowledged message is T milliseconds old, whichever comes first.
+ *
+ * In session-wide mode (Session.CLIENT_ACKNOWLEDGE) a batch is acknowledged with a single call on its last message,
+ * which acknowledges every message the session has delivered so far. In individual mode (qpid-jms
+ * INDIVIDUAL_ACKNOWLEDGE) each message of the batch is acknowledged by itself, which still takes the
+ * acknowledgements off the processing path.
+ *
+ * Acknowledgements are only sent from the delivery thread, after the handler has returned, so a message is never
+ * acknowledged while it is still being processed. With {@link #receive} the delivery thread is the caller's, which
+ * waits for messages no longer than until the pending batch is due, so a batch is acknowledged at most T ms after its
+ * first message was processed, plus the processing time of a message being handled at that moment. With a listener
+ * from {@link #wrap} the scheduler merely marks a batch as due, and an overdue batch is only acknowledged with the
+ * next processed message or on {@link #close()}; when traffic pauses it stays unacknowledged, and is redelivered if
+ * the consumer fails meanwhile.
+ *
+ * When processing fails, the session is recovered so that the failed message is redelivered. In individual mode the
+ * messages processed before it are acknowledged first; in session-wide mode an acknowledgement would cover the failed
+ * message too, so the rest of its batch is redelivered with it.
+ */
+public class AckController implements AutoCloseable {
+
+    private final Session session;
+    private final boolean individual;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final long maxDelayNanos;
+    private final Message[] pending;
+    private final ScheduledFuture<?> timer;
+
+    private int pendingCount;
+    private long oldestPendingNanos;
+    private volatile boolean due;
+    private ClientMetrics metrics;
+
+    /**
+     * Creates a controller for {@link #receive}, which keeps the time itself.
+     *
+     * @param session the session of the consumer, in CLIENT_ACKNOWLEDGE or qpid-jms INDIVIDUAL_ACKNOWLEDGE mode
+     */
+    public AckController(Session session, int batchSize, long maxDelayMillis) throws JMSException {
+        this(null, session, batchSize, maxDelayMillis);
+    }
+
+    /**
+     * Creates a controller for listeners from {@link #wrap}.
+     *
+     * @param scheduler used to mark batches that have waited {@code maxDelayMillis} without filling up as due, or
+     *                  null if the controller is only used with {@link #receive}
+     * @param session   the session of the consumer, in CLIENT_ACKNOWLEDGE or qpid-jms INDIVIDUAL_ACKNOWLEDGE mode
+     */
+    public AckController(ScheduledExecutorService scheduler, Session session, int batchSize, long maxDelayMillis)
+            throws JMSException {
+        this.session = session;
+        this.individual = session.getAcknowledgeMode() != Session.CLIENT_ACKNOWLEDGE;
+        this.batchSize = batchSize;
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(this.maxDelayMillis);
+        this.pending = new Message[individual ? batchSize : 1];
+        this.timer = scheduler == null ? null : scheduler.scheduleAtFixedRate(this::markIfDue, this.maxDelayMillis,
+                Math.max(1, this.maxDelayMillis / 2), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records every acknowledgement from now on in {@code metrics}.
+     */
+    public synchronized void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a listener that passes each message to {@code handler} and records it as processed, or as failed if
+     * the handler throws.
+     */
+    public MessageListener wrap(MessageListener handler) {
+        return message -> {
+            try {
+                handler.onMessage(message);
+            } catch (RuntimeException ex) {
+                try {
+                    failed(message);
+                } catch (JMSException ackEx) {
+                    ex.addSuppressed(ackEx);
+                }
+                throw ex;
+            }
+            try {
+                processed(message);
+            } catch (JMSException ex) {
+                System.out.println("Error acknowledging messages.");
+                ex.printStackTrace();
+            }
+        };
+    }
+
+    /**
+     * Receives messages from {@code consumer} on the calling thread and handles each as a listener from {@link #wrap}
+     * would, until {@code done} returns true. The consumer must not have a listener. A handler that throws has its
+     * message redelivered and does not end the loop.
+     */
+    public void receive(MessageConsumer consumer, MessageListener handler, BooleanSupplier done) throws JMSException {
+        MessageListener listener = wrap(handler);
+        while (!done.getAsBoolean()) {
+            Message message = consumer.receive(receiveTimeoutMillis());
+            if (message != null) {
+                try {
+                    listener.onMessage(message);
+                } catch (RuntimeException ex) {
+                    System.out.println("Error processing incoming message, it will be redelivered.");
+                    ex.printStackTrace();
+                }
+            }
+            flushIfOverdue();
+        }
+    }
+
+    /**
+     * Records a successfully processed message, acknowledging the batch if it is full or overdue. Must be called on
+     * the delivery thread.
+     */
+    public synchronized void processed(Message message) throws JMSException {
+        if (pendingCount == 0) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending[individual ? pendingCount : 0] = message;
+        pendingCount++;
+        if (pendingCount >= batchSize || due) {
+            flush();
+        }
+    }
+
+    /**
+     * Records a message whose processing failed: acknowledges the messages before it in individual mode and recovers
+     * the session, so that the failed message and everything else unacknowledged is redelivered. Must be called on
+     * the delivery thread.
+     */
+    public synchronized void failed(Message message) throws JMSException {
+        if (individual) {
+            flush();
+        } else {
+            clear();
+        }
+        session.recover();
+    }
+
+    /**
+     * Acknowledges every pending message now. Must be called on the delivery thread, or once delivery has stopped.
+     */
+    public synchronized void flush() throws JMSException {
+        if (pendingCount == 0) {
+            return;
+        }
+        try {
+            if (individual) {
+                for (int i = 0; i < pendingCount; i++) {
+                    acknowledge(pending[i]);
+                }
+            } else {
+                acknowledge(pending[0]);
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * Cancels the timer and acknowledges the pending messages. Stop delivery first, e.g. with
+     * {@link javax.jms.Connection#stop()}, so that no message is being processed meanwhile.
+     */
+    @Override
+    public void close() throws JMSException {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        flush();
+    }
+
+    private void acknowledge(Message message) throws JMSException {
+        if (metrics != null) {
+            metrics.acknowledge(message);
+        } else {
+            message.acknowledge();
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(pending, 0, individual ? pendingCount : 1, null);
+        pendingCount = 0;
+        due = false;
+    }
+
+    // How long receive() may wait before the pending batch is due
+    private synchronized long receiveTimeoutMillis() {
+        if (pendingCount == 0) {
+            return maxDelayMillis;
+        }
+        long remainingNanos = maxDelayNanos - (System.nanoTime() - oldestPendingNanos);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+    }
+
+    private synchronized void flushIfOverdue() throws JMSException {
+        if (pendingCount > 0 && System.nanoTime() - oldestPendingNanos >= maxDelayNanos) {
+            flush();
+        }
+    }
+
+    // Runs on the scheduler, only flags the batch so that the delivery thread acknowledges it
+    private synchronized void markIfDue() {
+        if (pendingCount > 0 && System.nanoTime() - oldestPendingNanos >= maxDelayNanos) {
+            due = true;
+        }
+    }
+}
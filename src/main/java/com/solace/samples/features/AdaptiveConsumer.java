@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: AdaptiveConsumer
+ */
+
+package com.solace.samples.features;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+/**
+ * Receives from a destination on its own thread and adapts the consumer's prefetch (its AMQP link credit) to how
+ * fast messages are handled, within set bounds.
+ *
+ * Once per second the controller looks at the handling rate, at how often the prefetch buffer ran empty, at the
+ * queueing delay and at the average message size. It aims to buffer {@code targetBufferMillis} worth of handling, so
+ * the buffer waits about that long at most while a slow handler keeps little in memory. It doubles the prefetch while
+ * the handler is kept waiting for messages, as happens when the link round trip exceeds the buffered time. It never
+ * buffers more than {@code maxBufferBytes} of message bodies.
+ *
+ * The queueing delay is the time from a message's JMSTimestamp to its handling, less the shortest such time in the
+ * period, which leaves out the transit time and any clock offset between sender and receiver. When it exceeds
+ * {@code targetBufferMillis} while the buffer does not run empty, messages wait longer in the buffer than intended and
+ * the prefetch is reduced in proportion.
+ *
+ * Apache Qpid JMS only applies the prefetch when a consumer is created, so a change of more than half or a third
+ * replaces the consumer: the new consumer is created with the new prefetch, the messages buffered by the old one are
+ * handled and the old one is closed. On a topic both subscriptions briefly receive the same messages, which are
+ * recognized by their JMSMessageID and handled once. The connection factory must use the {@link
+ * AdaptivePrefetchPolicy} passed in.
+ */
+public class AdaptiveConsumer {
+
+    // Period of the prefetch adjustments
+    static final long CONTROL_PERIOD_MILLIS = 1000;
+    // Share of receives finding the prefetch buffer empty above which the prefetch is doubled
+    static final double STARVED_RATIO = 0.05;
+    // Size assumed for messages whose body size is unknown
+    static final int DEFAULT_MESSAGE_SIZE = 1024;
+    private static final long RECEIVE_TIMEOUT_MILLIS = 100;
+
+    private final Session session;
+    private final Destination destination;
+    private final AdaptivePrefetchPolicy policy;
+    private final int minPrefetch;
+    private final int maxPrefetch;
+    private final long targetBufferMillis;
+    private final long maxBufferBytes;
+    private final MessageListener handler;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private MessageConsumer consumer;
+    private final Set<String> takenOver = new HashSet<>();
+
+    // Current control period, only touched by the consumer thread
+    private long periodStartNanos;
+    private long periodHandled;
+    private long periodReceives;
+    private long periodStarved;
+    private long periodBytes;
+    private long periodDelaySum;
+    private long periodDelayCount;
+    private long periodMinDelay = Long.MAX_VALUE;
+
+    private volatile long handled;
+    private volatile long replacements;
+    private volatile long duplicates;
+    private volatile double rate;
+    private volatile double starvedRatio;
+    private volatile double queueingDelayMillis;
+    private volatile long averageSize = DEFAULT_MESSAGE_SIZE;
+    private volatile int maxPrefetchSeen;
+
+    /**
+     * @param policy             the prefetch policy of the session's connection factory, its prefetch is the start
+     *                           value
+     * @param targetBufferMillis handling time worth of messages to keep buffered
+     * @param maxBufferBytes     upper bound of the buffered message bodies
+     */
+    public AdaptiveConsumer(Session session, Destination destination, AdaptivePrefetchPolicy policy, int minPrefetch,
+            int maxPrefetch, long targetBufferMillis, long maxBufferBytes, MessageListener handler) {
+        this.session = session;
+        this.destination = destination;
+        this.policy = policy;
+        this.minPrefetch = Math.max(1, minPrefetch);
+        this.maxPrefetch = Math.max(this.minPrefetch, maxPrefetch);
+        this.targetBufferMillis = targetBufferMillis;
+        this.maxBufferBytes = maxBufferBytes;
+        this.handler = handler;
+        this.thread = new Thread(this::consume, "adaptive-consumer");
+        policy.setPrefetch(Math.max(this.minPrefetch, Math.min(policy.getPrefetch(), this.maxPrefetch)));
+    }
+
+    /**
+     * Creates the first consumer and starts receiving. The session's connection must be started.
+     */
+    public void start() throws JMSException {
+        consumer = session.createConsumer(destination);
+        maxPrefetchSeen = policy.getPrefetch();
+        periodStartNanos = System.nanoTime();
+        thread.start();
+    }
+
+    /**
+     * Stops receiving and closes the consumer, releasing the messages it still buffers.
+     */
+    public void close() throws InterruptedException, JMSException {
+        running = false;
+        thread.join();
+        consumer.close();
+    }
+
+    public int getPrefetch() {
+        return policy.getPrefetch();
+    }
+
+    public long getHandledCount() {
+        return handled;
+    }
+
+    /**
+     * @return the largest prefetch used so far
+     */
+    public int getMaxPrefetch() {
+        return maxPrefetchSeen;
+    }
+
+    /**
+     * Formats the state of the controller as of the last adjustment.
+     */
+    public String summary() {
+        return String.format("prefetch %d, handled %d at %.0f msgs/s, starved %.1f%%, queueing delay %.1f ms, "
+                + "avg size %d bytes, %d consumer replacements, %d duplicates skipped", policy.getPrefetch(), handled,
+                rate, starvedRatio * 100, queueingDelayMillis, averageSize, replacements, duplicates);
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                // Receiving without waiting first tells whether the prefetch buffer ran empty
+                Message message = consumer.receiveNoWait();
+                periodReceives++;
+                if (message == null) {
+                    periodStarved++;
+                    message = consumer.receive(RECEIVE_TIMEOUT_MILLIS);
+                }
+                if (message != null) {
+                    if (!takenOver.isEmpty() && takenOver.remove(message.getJMSMessageID())) {
+                        duplicates++;
+                    } else {
+                        handle(message);
+                    }
+                }
+                if (System.nanoTime() - periodStartNanos >= TimeUnit.MILLISECONDS.toNanos(CONTROL_PERIOD_MILLIS)) {
+                    adjust();
+                }
+            } catch (JMSException | RuntimeException ex) {
+                System.out.println("Error processing incoming message.");
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void handle(Message message) throws JMSException {
+        long timestamp = message.getJMSTimestamp();
+        if (timestamp > 0) {
+            long delay = System.currentTimeMillis() - timestamp;
+            periodDelaySum += delay;
+            periodDelayCount++;
+            periodMinDelay = Math.min(periodMinDelay, delay);
+        }
+        handler.onMessage(message);
+        periodHandled++;
+        periodBytes += sizeOf(message);
+        handled++;
+    }
+
+    private void adjust() throws JMSException {
+        long now = System.nanoTime();
+        double seconds = (now - periodStartNanos) / 1e9;
+        rate = periodHandled / seconds;
+        starvedRatio = periodReceives == 0 ? 0 : (double) periodStarved / periodReceives;
+        if (periodHandled > 0) {
+            averageSize = Math.max(1, periodBytes / periodHandled);
+        }
+        queueingDelayMillis = periodDelayCount == 0 ? 0 : (double) periodDelaySum / periodDelayCount - periodMinDelay;
+        int current = policy.getPrefetch();
+        long target = (long) Math.ceil(rate * targetBufferMillis / 1000.0);
+        if (starvedRatio > STARVED_RATIO && periodHandled > 0) {
+            target = Math.max(target, (long) current * 2);
+        } else if (queueingDelayMillis > targetBufferMillis) {
+            target = Math.min(target, (long) (current * targetBufferMillis / queueingDelayMillis));
+        }
+        target = Math.min(target, maxBufferBytes / averageSize);
+        int prefetch = (int) Math.max(minPrefetch, Math.min(target, maxPrefetch));
+
+        // Messages taken over in the previous replacement have had a full period to arrive at the new consumer
+        takenOver.clear();
+        // Replacing the consumer costs a link attach and detach, so only significant changes are applied
+        if (prefetch > current * 3L / 2 || prefetch < current * 2L / 3) {
+            replace(prefetch, current);
+        }
+        periodStartNanos = now;
+        periodHandled = 0;
+        periodReceives = 0;
+        periodStarved = 0;
+        periodBytes = 0;
+        periodDelaySum = 0;
+        periodDelayCount = 0;
+        periodMinDelay = Long.MAX_VALUE;
+    }
+
+    private void replace(int prefetch, int previous) throws JMSException {
+        policy.setPrefetch(prefetch);
+        MessageConsumer next = session.createConsumer(destination);
+        // Handle what the old consumer has buffered, bounded in case new messages keep arriving for it
+        Message message;
+        for (int i = 0; i < previous * 2 && (message = consumer.receiveNoWait()) != null; i++) {
+            takenOver.add(message.getJMSMessageID());
+            handle(message);
+        }
+        consumer.close();
+        consumer = next;
+        replacements++;
+        maxPrefetchSeen = Math.max(maxPrefetchSeen, prefetch);
+    }
+
+    private static long sizeOf(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            return ((BytesMessage) message).getBodyLength();
+        }
+        if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            return text == null ? 0 : text.length();
+        }
+        return DEFAULT_MESSAGE_SIZE;
+    }
+}
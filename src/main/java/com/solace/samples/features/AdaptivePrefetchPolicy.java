@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: AdaptivePrefetchPolicy
+ */
+
+package com.solace.samples.features;
+
+import org.apache.qpid.jms.JmsDestination;
+import org.apache.qpid.jms.JmsSession;
+import org.apache.qpid.jms.policy.JmsPrefetchPolicy;
+
+/**
+ * A prefetch policy whose prefetch can be changed at runtime, for {@link AdaptiveConsumer}.
+ *
+ * Apache Qpid JMS asks the policy for the link credit of a consumer when the consumer is created, so a new value
+ * applies to consumers created after the change. Connections normally get a copy of the factory's policy; this one
+ * returns itself as the copy, so that changes reach the connections already created from the factory.
+ */
+public class AdaptivePrefetchPolicy implements JmsPrefetchPolicy {
+
+    private volatile int prefetch;
+
+    public AdaptivePrefetchPolicy(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Sets the prefetch of consumers created from now on.
+     */
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public JmsPrefetchPolicy copy() {
+        return this;
+    }
+
+    @Override
+    public int getConfiguredPrefetch(JmsSession session, JmsDestination destination, boolean durable,
+            boolean browser) {
+        return prefetch;
+    }
+}
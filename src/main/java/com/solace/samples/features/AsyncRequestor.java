@@ -0,0 +1,324 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: AsyncRequestor
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import javax.jms.TextMessage;
+
+/**
+ * A requestor that can have any number of requests outstanding over one connection.
+ *
+ * All requests share one temporary reply queue and one reply listener. Each request is registered under its
+ * correlation ID and answered with a {@link CompletableFuture} that the reply listener completes, or that fails with
+ * a {@link TimeoutException} when no reply arrives in time. Timeouts are tracked on a shared {@link TimerWheel}.
+ *
+ * A request to a topic that several repliers subscribe to can also be scattered to all of them with {@link #scatter},
+ * which gathers their replies into one {@link GatheredReplies} until a quorum or the expected number of replies is in,
+ * or the deadline has passed. Repliers identify themselves with the {@value #REPLIER_ID_PROPERTY} property.
+ *
+ * Requests may be sent from any thread. Futures are completed on the JMS delivery thread, so dependent actions that
+ * block or take long should use the {@code ...Async} variants of {@link CompletableFuture}.
+ */
+public class AsyncRequestor implements AutoCloseable {
+
+    public static final String REPLIER_ID_PROPERTY = "ReplierId";
+
+    private final Session session;
+    private final MessageProducer requestProducer;
+    private final TemporaryQueue replyToQueue;
+    private final MessageConsumer replyConsumer;
+    private final TimerWheel timerWheel;
+    private final boolean ownsTimerWheel;
+
+    private final CorrelationIdGenerator correlationIds = new CorrelationIdGenerator();
+    private final ConcurrentMap<Long, PendingRequest> pending = new ConcurrentHashMap<>();
+    private final LongAdder lateReplies = new LongAdder();
+    private volatile ClientMetrics metrics;
+    private volatile boolean closed;
+
+    /**
+     * Creates a requestor sending to {@code requestDestination} on its own session of {@code connection}. The
+     * connection must be started for replies to be received.
+     */
+    public AsyncRequestor(Connection connection, Destination requestDestination) throws JMSException {
+        this(connection, requestDestination, new TimerWheel(), true);
+    }
+
+    public AsyncRequestor(Connection connection, Destination requestDestination, TimerWheel timerWheel)
+            throws JMSException {
+        this(connection, requestDestination, timerWheel, false);
+    }
+
+    private AsyncRequestor(Connection connection, Destination requestDestination, TimerWheel timerWheel,
+            boolean ownsTimerWheel) throws JMSException {
+        this.timerWheel = timerWheel;
+        this.ownsTimerWheel = ownsTimerWheel;
+        this.session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        this.requestProducer = session.createProducer(requestDestination);
+        this.replyToQueue = session.createTemporaryQueue();
+        this.replyConsumer = session.createConsumer(replyToQueue);
+        replyConsumer.setMessageListener(this::onReply);
+    }
+
+    /**
+     * Records the round trip of every request sent from now on in {@code metrics}.
+     */
+    public void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a text message for a request. Synchronized with sending, as the session is shared by all callers.
+     */
+    public TextMessage createTextMessage(String text) throws JMSException {
+        synchronized (session) {
+            return session.createTextMessage(text);
+        }
+    }
+
+    /**
+     * Sends {@code request} and returns a future for its reply. The request's reply-to destination and correlation ID
+     * are set here and must not be touched until the future completes.
+     */
+    public CompletableFuture<Message> request(Message request, long timeout, TimeUnit unit) {
+        ClientMetrics metrics = this.metrics;
+        SingleRequest pendingRequest = new SingleRequest(correlationIds.nextSequence(), metrics,
+                metrics != null ? metrics.requestStarted() : 0);
+        send(request, pendingRequest, timeout, unit);
+        return pendingRequest.future;
+    }
+
+    /**
+     * Sends {@code request} once and gathers the replies of all repliers that answer it. The future completes with
+     * the replies received so far as soon as {@code quorum} replies, or {@code expectedReplies} replies, have arrived,
+     * or when the timeout has passed. It only fails if the request could not be sent; whether enough replies were
+     * received is told by {@link GatheredReplies#isQuorumReached()}. Replies beyond that count as late replies.
+     *
+     * @param quorum number of replies that is enough, or 0 to wait for all expected replies
+     */
+    public CompletableFuture<GatheredReplies> scatter(Message request, int expectedReplies, int quorum, long timeout,
+            TimeUnit unit) {
+        if (expectedReplies < 1 || quorum < 0 || quorum > expectedReplies) {
+            throw new IllegalArgumentException("Expected replies must be positive and quorum at most expected replies");
+        }
+        ClientMetrics metrics = this.metrics;
+        ScatterRequest pendingRequest = new ScatterRequest(correlationIds.nextSequence(), metrics,
+                metrics != null ? metrics.requestStarted() : 0, expectedReplies, quorum);
+        send(request, pendingRequest, timeout, unit);
+        return pendingRequest.future;
+    }
+
+    private void send(Message request, PendingRequest pendingRequest, long timeout, TimeUnit unit) {
+        if (closed) {
+            pendingRequest.fail(new IllegalStateException("Requestor is closed"));
+            return;
+        }
+        // Register before sending, the reply may arrive before send() returns
+        pending.put(pendingRequest.sequence, pendingRequest);
+        timerWheel.schedule(pendingRequest, timeout, unit);
+        try {
+            synchronized (session) {
+                request.setJMSReplyTo(replyToQueue);
+                request.setJMSCorrelationID(correlationIds.toCorrelationId(pendingRequest.sequence));
+                requestProducer.send(request, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                        Message.DEFAULT_TIME_TO_LIVE);
+            }
+        } catch (JMSException ex) {
+            if (pendingRequest.cancel()) {
+                pending.remove(pendingRequest.sequence, pendingRequest);
+                pendingRequest.fail(ex);
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of replies that arrived after their request had timed out
+     */
+    public long getLateReplyCount() {
+        return lateReplies.sum();
+    }
+
+    /**
+     * Closes the session and fails all outstanding requests.
+     */
+    @Override
+    public void close() throws JMSException {
+        closed = true;
+        try {
+            replyConsumer.close();
+            requestProducer.close();
+            replyToQueue.delete();
+            session.close();
+        } finally {
+            IllegalStateException closedException = new IllegalStateException("Requestor is closed");
+            for (PendingRequest pendingRequest : pending.values()) {
+                if (pendingRequest.cancel()) {
+                    pending.remove(pendingRequest.sequence, pendingRequest);
+                    pendingRequest.fail(closedException);
+                }
+            }
+            if (ownsTimerWheel) {
+                timerWheel.close();
+            }
+        }
+    }
+
+    private void onReply(Message reply) {
+        try {
+            long sequence = correlationIds.parse(reply.getJMSCorrelationID());
+            if (sequence < 0) {
+                System.out.println("Received a reply message with an unknown correlationID.");
+                return;
+            }
+            PendingRequest pendingRequest = pending.get(sequence);
+            if (pendingRequest == null || !pendingRequest.accept(reply)) {
+                lateReplies.increment();
+            }
+        } catch (JMSException ex) {
+            System.out.println("Error processing reply message.");
+            ex.printStackTrace();
+        }
+    }
+
+    // Whoever wins the timeout's state change, cancel() or the wheel expiring it, completes the future; the entry
+    // in the pending map is only removed afterwards and does not decide ownership
+    private abstract class PendingRequest extends TimerWheel.Timeout {
+        final long sequence;
+        final ClientMetrics metrics;
+        final long startNanos;
+
+        PendingRequest(long sequence, ClientMetrics metrics, long startNanos) {
+            this.sequence = sequence;
+            this.metrics = metrics;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Called on the delivery thread for every reply; returns false if the reply came too late.
+         */
+        abstract boolean accept(Message reply) throws JMSException;
+
+        abstract void fail(Exception exception);
+
+        void completed(boolean success) {
+            if (metrics != null) {
+                metrics.requestCompleted(startNanos, success);
+            }
+        }
+    }
+
+    private class SingleRequest extends PendingRequest {
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        SingleRequest(long sequence, ClientMetrics metrics, long startNanos) {
+            super(sequence, metrics, startNanos);
+        }
+
+        @Override
+        boolean accept(Message reply) {
+            if (!cancel()) {
+                return false;
+            }
+            pending.remove(sequence, this);
+            completed(true);
+            future.complete(reply);
+            return true;
+        }
+
+        @Override
+        void fail(Exception exception) {
+            completed(false);
+            future.completeExceptionally(exception);
+        }
+
+        @Override
+        protected void expire() {
+            pending.remove(sequence, this);
+            fail(new TimeoutException("No reply received for request #" + sequence));
+        }
+    }
+
+    private class ScatterRequest extends PendingRequest {
+        final CompletableFuture<GatheredReplies> future = new CompletableFuture<>();
+        final GatheredReplies replies;
+        final long sentNanos = System.nanoTime();
+
+        ScatterRequest(long sequence, ClientMetrics metrics, long startNanos, int expectedReplies, int quorum) {
+            super(sequence, metrics, startNanos);
+            this.replies = new GatheredReplies(expectedReplies, quorum);
+        }
+
+        @Override
+        boolean accept(Message reply) throws JMSException {
+            long latency = System.nanoTime() - sentNanos;
+            if (!replies.add(reply, reply.getStringProperty(REPLIER_ID_PROPERTY), latency)) {
+                return false;
+            }
+            if (replies.isSatisfied() && cancel()) {
+                pending.remove(sequence, this);
+                finish();
+            }
+            return true;
+        }
+
+        @Override
+        void fail(Exception exception) {
+            replies.finish();
+            completed(false);
+            future.completeExceptionally(exception);
+        }
+
+        @Override
+        protected void expire() {
+            pending.remove(sequence, this);
+            finish();
+        }
+
+        private void finish() {
+            replies.finish();
+            completed(replies.isQuorumReached());
+            future.complete(replies);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: BytesPayloads
+ */
+
+package com.solace.samples.features;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.message.JmsMessage;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Data;
+
+/**
+ * A binary payload path built on {@link BytesMessage}, as an alternative to {@code TextMessage} strings which are
+ * UTF-8 encoded and decoded and allocate a new {@code String} and {@code byte[]} for every message.
+ *
+ * Producers serialize into a buffer that is reused by each thread, so the only copy is the one into the message
+ * body. Consumers get the payload as a read-only {@link ByteBuffer} view of the AMQP data section that Apache Qpid
+ * JMS decoded the message into, without copying it. With other JMS providers, or a Qpid JMS version whose internals
+ * differ, the payload is copied into the reused buffer of the consuming thread instead.
+ */
+public final class BytesPayloads {
+
+    // Initial size of the per-thread buffers, they grow to the largest payload seen by the thread
+    static final int INITIAL_CAPACITY = 4096;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_CAPACITY));
+
+    private static final Class<?> AMQP_FACADE = findAmqpFacade();
+    private static final MethodHandle GET_BODY = findBodyAccessor(AMQP_FACADE);
+
+    /**
+     * Serializes a payload into a buffer.
+     */
+    @FunctionalInterface
+    public interface PayloadWriter {
+        /**
+         * Puts the payload into {@code buffer} starting at its current position. Called again with a larger buffer
+         * if the payload does not fit, so it must write the whole payload every time.
+         */
+        void write(ByteBuffer buffer) throws JMSException;
+    }
+
+    private BytesPayloads() {
+    }
+
+    /**
+     * Creates a message with the payload put by {@code writer} into the calling thread's buffer.
+     */
+    public static BytesMessage createMessage(Session session, PayloadWriter writer) throws JMSException {
+        ByteBuffer buffer = write(writer);
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(buffer.array(), buffer.arrayOffset(), buffer.position());
+        return message;
+    }
+
+    /**
+     * Creates a message with a copy of the remaining bytes of {@code payload}, leaving its position untouched.
+     */
+    public static BytesMessage createMessage(Session session, ByteBuffer payload) throws JMSException {
+        if (!payload.hasArray()) {
+            return createMessage(session, buffer -> buffer.put(payload.duplicate()));
+        }
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        return message;
+    }
+
+    /**
+     * Returns the payload of a message, positioned at its start.
+     *
+     * With Apache Qpid JMS this is a read-only view of the message body that stays valid as long as the message. With
+     * other providers it is the calling thread's reused buffer, which is only valid until the next call on the same
+     * thread. Also puts the message body in read-only mode, as {@link BytesMessage#reset()} does.
+     */
+    public static ByteBuffer payload(BytesMessage message) throws JMSException {
+        ByteBuffer payload = arrayPayload(message);
+        return payload == BUFFERS.get() ? payload : payload.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return whether {@link #payload} can return views of message bodies instead of copies
+     */
+    public static boolean isZeroCopy() {
+        return GET_BODY != null;
+    }
+
+    /**
+     * Puts the payload of {@code writer} into the calling thread's buffer and returns the buffer, positioned after
+     * the payload.
+     */
+    static ByteBuffer write(PayloadWriter writer) throws JMSException {
+        ByteBuffer buffer = BUFFERS.get();
+        while (true) {
+            buffer.clear();
+            try {
+                writer.write(buffer);
+                return buffer;
+            } catch (BufferOverflowException ex) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                BUFFERS.set(buffer);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #payload}, but returns a writable view with an accessible array, for codecs that work on
+     * arrays. The view must not be modified.
+     */
+    static ByteBuffer arrayPayload(BytesMessage message) throws JMSException {
+        // Moves a body being written into the data section and rewinds one being read
+        message.reset();
+        ByteBuffer view = bodyView(message);
+        if (view != null) {
+            return view;
+        }
+        int length = (int) message.getBodyLength();
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            BUFFERS.set(buffer);
+        }
+        buffer.clear();
+        message.readBytes(buffer.array(), length);
+        buffer.limit(length);
+        return buffer;
+    }
+
+    private static ByteBuffer bodyView(BytesMessage message) {
+        if (GET_BODY == null || !(message instanceof JmsMessage)) {
+            return null;
+        }
+        Object facade = ((JmsMessage) message).getFacade();
+        if (!AMQP_FACADE.isInstance(facade)) {
+            return null;
+        }
+        Object body;
+        try {
+            body = (Object) GET_BODY.invokeExact(facade);
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            return null;
+        }
+        if (!(body instanceof Data)) {
+            return null;
+        }
+        Binary binary = ((Data) body).getValue();
+        if (binary == null) {
+            return ByteBuffer.allocate(0);
+        }
+        return ByteBuffer.wrap(binary.getArray(), binary.getArrayOffset(), binary.getLength()).slice();
+    }
+
+    private static Class<?> findAmqpFacade() {
+        try {
+            return Class.forName("org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFacade");
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    private static MethodHandle findBodyAccessor(Class<?> facadeType) {
+        if (facadeType == null) {
+            return null;
+        }
+        try {
+            // Not part of the public API of Apache Qpid JMS, so looked up reflectively
+            Method getBody = facadeType.getDeclaredMethod("getBody");
+            getBody.setAccessible(true);
+            return MethodHandles.lookup().unreflect(getBody)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+}
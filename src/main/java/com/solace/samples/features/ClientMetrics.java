@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ClientMetrics
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+
+/**
+ * The standard metrics of a messaging client, with wrappers that record them for producers, listeners,
+ * acknowledgements and request/reply round trips:
+ *
+ * <ul>
+ * <li>{@code send}, {@code send.inFlight}, {@code send.failed}: sends and their duration, until completion for
+ * asynchronous sends</li>
+ * <li>{@code onMessage}, {@code onMessage.failed}: listener calls and their duration</li>
+ * <li>{@code acknowledge}: acknowledgements and their duration</li>
+ * <li>{@code request}, {@code request.inFlight}, {@code request.failed}: requests and their round-trip time</li>
+ * </ul>
+ *
+ * With the system property {@value #INTERVAL_PROPERTY} set to a number of seconds, the metrics are also reported at
+ * that interval: as text on standard output, or as CSV rows written to the file named by {@value #CSV_PROPERTY}.
+ */
+public class ClientMetrics {
+
+    public static final String INTERVAL_PROPERTY = "samples.metrics.interval";
+    public static final String CSV_PROPERTY = "samples.metrics.csv";
+
+    private final Metrics metrics;
+    final Metrics.Timer send;
+    final Metrics.Gauge sendInFlight;
+    final Metrics.Counter sendFailed;
+    final Metrics.Timer onMessage;
+    final Metrics.Counter onMessageFailed;
+    final Metrics.Timer acknowledge;
+    final Metrics.Timer request;
+    final Metrics.Gauge requestInFlight;
+    final Metrics.Counter requestFailed;
+    private final boolean reporting;
+    private final boolean reportingText;
+
+    public ClientMetrics(String name) {
+        this.metrics = new Metrics(name);
+        this.send = metrics.timer("send");
+        this.sendInFlight = metrics.gauge("send.inFlight");
+        this.sendFailed = metrics.counter("send.failed");
+        this.onMessage = metrics.timer("onMessage");
+        this.onMessageFailed = metrics.counter("onMessage.failed");
+        this.acknowledge = metrics.timer("acknowledge");
+        this.request = metrics.timer("request");
+        this.requestInFlight = metrics.gauge("request.inFlight");
+        this.requestFailed = metrics.counter("request.failed");
+
+        long intervalSeconds = Long.getLong(INTERVAL_PROPERTY, 0);
+        MetricsReporter reporter = null;
+        if (intervalSeconds > 0) {
+            String csvFile = System.getProperty(CSV_PROPERTY);
+            if (csvFile == null) {
+                reporter = MetricsReporter.text(System.out);
+            } else {
+                try {
+                    reporter = MetricsReporter.csv(new File(csvFile));
+                } catch (IOException ex) {
+                    System.out.printf("Error opening metrics file '%s', reporting on standard output.%n", csvFile);
+                    ex.printStackTrace();
+                    reporter = MetricsReporter.text(System.out);
+                    csvFile = null;
+                }
+            }
+            metrics.start(intervalSeconds, TimeUnit.SECONDS, reporter);
+            reportingText = csvFile == null;
+        } else {
+            reportingText = false;
+        }
+        this.reporting = reporter != null;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns a producer that records every send before passing it on to {@code producer}.
+     */
+    public MessageProducer instrument(MessageProducer producer) {
+        return new InstrumentedMessageProducer(producer, this);
+    }
+
+    /**
+     * Returns a listener that records every call before passing it on to {@code listener}.
+     */
+    public MessageListener instrument(MessageListener listener) {
+        return new InstrumentedMessageListener(listener, this);
+    }
+
+    /**
+     * Acknowledges {@code message} and records the acknowledgement.
+     */
+    public void acknowledge(Message message) throws JMSException {
+        long start = System.nanoTime();
+        message.acknowledge();
+        acknowledge.stop(start);
+    }
+
+    /**
+     * Records the start of a request.
+     *
+     * @return the start time to pass to {@link #requestCompleted}
+     */
+    public long requestStarted() {
+        requestInFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the end of a request started at {@code startNanos}, with or without a reply.
+     */
+    public void requestCompleted(long startNanos, boolean replied) {
+        requestInFlight.decrement();
+        if (replied) {
+            request.stop(startNanos);
+        } else {
+            requestFailed.increment();
+        }
+    }
+
+    /**
+     * Takes a final snapshot and prints it, stopping the periodic reports if they are enabled.
+     */
+    public void printSummary() {
+        if (reporting) {
+            // The final snapshot also goes to the periodic reporter
+            metrics.stop();
+        } else {
+            metrics.snapshot();
+        }
+        if (!reportingText) {
+            MetricsReporter.text(System.out).report(metrics);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: CommitBatchSize
+ */
+
+package com.solace.samples.features;
+
+/**
+ * The number of messages per transaction of {@link TransactedPublisher} and {@link TransactedConsumer}.
+ *
+ * Either fixed, or adapted after every commit to keep the commit latency near a target: the size grows by 1/16
+ * while commits take less than the target and shrinks by 1/4 when they take longer, so it backs off quickly when
+ * the broker slows down and probes carefully for more.
+ */
+class CommitBatchSize {
+
+    private final int maxSize;
+    private final long targetNanos;
+    private volatile int size;
+
+    /**
+     * @param targetNanos commit latency to adapt to, or 0 to keep the size fixed
+     */
+    CommitBatchSize(int initialSize, int maxSize, long targetNanos) {
+        this.maxSize = Math.max(1, maxSize);
+        this.targetNanos = targetNanos;
+        this.size = Math.max(1, Math.min(initialSize, this.maxSize));
+    }
+
+    int get() {
+        return size;
+    }
+
+    void commitTook(long nanos) {
+        if (targetNanos <= 0) {
+            return;
+        }
+        int current = size;
+        if (nanos > targetNanos) {
+            size = Math.max(1, current - Math.max(1, current / 4));
+        } else {
+            size = Math.min(maxSize, current + Math.max(1, current / 16));
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ConnectionPool
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * A bounded pool of connections with cached sessions and producers, handed out to threads one session at a time, so
+ * that repeated operations do not pay for a connection handshake and authentication each.
+ *
+ * Up to {@code maxConnections} connections are opened on demand, each carrying up to
+ * {@code sessionsPerConnection} sessions. A borrowed {@link PooledSession} belongs to the borrowing thread until it
+ * is closed, which returns it to the pool together with the producers created through it. When every session is
+ * borrowed, {@link #borrow} waits for one to be returned.
+ *
+ * A background task closes sessions that have been idle for longer than the idle timeout, and connections left
+ * without sessions, except the oldest one unless it has failed, so that the next borrow does not have to connect.
+ * All connections are watched through their exception listener. Only the connections without sessions are also
+ * probed by opening a session on them, as those with sessions show failures when the sessions are used. The sessions
+ * of a failed connection are discarded instead of being handed out again.
+ * With a leak threshold, every borrow records its stack trace, and sessions held for longer than the threshold are
+ * reported once with that trace.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    // Producers kept open per session, the least recently used is closed beyond that
+    static final int MAX_PRODUCERS_PER_SESSION = 16;
+    // Period of idle eviction, health checks and leak detection
+    static final long MAINTENANCE_PERIOD_MILLIS = 1000;
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxConnections;
+    private final int sessionsPerConnection;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+
+    private final Semaphore available;
+    private final List<PooledConnection> connections = new ArrayList<>();
+    private final Deque<PooledSession> idle = new ArrayDeque<>();
+    private final Set<PooledSession> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean closed;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder sessionsCreated = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder failedConnections = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * A pool of up to 2 connections with 8 sessions each, closing sessions idle for a minute and reporting sessions
+     * borrowed for more than 30 seconds.
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory) {
+        this(connectionFactory, 2, 8, 60000, 30000);
+    }
+
+    /**
+     * @param idleTimeoutMillis   time after which an unused session is closed
+     * @param leakThresholdMillis time after which a borrowed session is reported as leaked, or 0 for no leak detection
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxConnections, int sessionsPerConnection,
+            long idleTimeoutMillis, long leakThresholdMillis) {
+        this.connectionFactory = connectionFactory;
+        this.maxConnections = maxConnections;
+        this.sessionsPerConnection = sessionsPerConnection;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        this.available = new Semaphore(maxConnections * sessionsPerConnection, true);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_PERIOD_MILLIS, MAINTENANCE_PERIOD_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a session, opening a connection if needed, and waits up to {@code timeout} for one to be returned if
+     * all are borrowed. Connections are started, so the session can consume right away.
+     */
+    public PooledSession borrow(long timeout, TimeUnit unit) throws JMSException, InterruptedException {
+        if (closed) {
+            throw new JMSException("Connection pool is closed");
+        }
+        if (!available.tryAcquire(timeout, unit)) {
+            throw new JMSException("Timed out waiting for a pooled session");
+        }
+        try {
+            PooledSession session = takeIdle();
+            if (session == null) {
+                session = createSession();
+            }
+            session.borrowedNanos = System.nanoTime();
+            session.borrowTrace = leakThresholdNanos > 0 ? new Exception("Borrowed here") : null;
+            session.leakReported = false;
+            session.returned = false;
+            borrowed.add(session);
+            borrows.increment();
+            return session;
+        } catch (JMSException | RuntimeException ex) {
+            available.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes every connection, including those of borrowed sessions.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        synchronized (this) {
+            idle.clear();
+            for (PooledConnection connection : connections) {
+                connection.close();
+            }
+            connections.clear();
+        }
+        borrowed.clear();
+    }
+
+    public synchronized String summary() {
+        return String.format("%d connections (%d opened, %d failed), %d idle and %d borrowed sessions (%d opened, "
+                + "%d evicted), %d borrows, %d leaks", connections.size(), connectionsCreated.sum(),
+                failedConnections.sum(), idle.size(), borrowed.size(), sessionsCreated.sum(), evicted.sum(),
+                borrows.sum(), leaks.sum());
+    }
+
+    private synchronized PooledSession takeIdle() {
+        PooledSession session;
+        while ((session = idle.pollFirst()) != null) {
+            if (!session.connection.failed) {
+                return session;
+            }
+            destroy(session);
+        }
+        return null;
+    }
+
+    private synchronized PooledSession createSession() throws JMSException {
+        PooledConnection target = null;
+        int healthy = 0;
+        for (PooledConnection connection : connections) {
+            if (connection.failed) {
+                continue;
+            }
+            healthy++;
+            if (connection.sessions < sessionsPerConnection
+                    && (target == null || connection.sessions < target.sessions)) {
+                target = connection;
+            }
+        }
+        if (target == null) {
+            if (healthy >= maxConnections) {
+                throw new JMSException("No pooled connection has a free session");
+            }
+            // Failed connections stay listed until their borrowed sessions are returned
+            target = new PooledConnection(connectionFactory.createConnection());
+            connections.add(target);
+            connectionsCreated.increment();
+        }
+        PooledSession session = new PooledSession(target, target.connection.createSession(false,
+                Session.AUTO_ACKNOWLEDGE));
+        target.sessions++;
+        sessionsCreated.increment();
+        return session;
+    }
+
+    private void release(PooledSession session, boolean reusable) {
+        borrowed.remove(session);
+        synchronized (this) {
+            if (!closed && reusable && !session.connection.failed) {
+                session.lastUsedNanos = System.nanoTime();
+                idle.addFirst(session);
+            } else {
+                destroy(session);
+            }
+        }
+        available.release();
+    }
+
+    // Closes a session that is no longer in the pool, and its connection if it has failed and has no sessions left
+    private synchronized void destroy(PooledSession session) {
+        session.closeQuietly();
+        PooledConnection connection = session.connection;
+        connection.sessions--;
+        if (connection.failed && connection.sessions == 0) {
+            connections.remove(connection);
+            connection.close();
+        }
+    }
+
+    private void maintain() {
+        try {
+            long now = System.nanoTime();
+            evictIdle(now);
+            checkConnections();
+            if (leakThresholdNanos > 0) {
+                for (PooledSession session : borrowed) {
+                    if (!session.leakReported && now - session.borrowedNanos > leakThresholdNanos) {
+                        session.leakReported = true;
+                        leaks.increment();
+                        System.out.printf("Pooled session borrowed %d s ago has not been returned.%n",
+                                TimeUnit.NANOSECONDS.toSeconds(now - session.borrowedNanos));
+                        if (session.borrowTrace != null) {
+                            session.borrowTrace.printStackTrace(System.out);
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            System.out.println("Error maintaining connection pool.");
+            ex.printStackTrace();
+        }
+    }
+
+    private synchronized void evictIdle(long now) {
+        // The least recently used sessions are at the end
+        while (!idle.isEmpty() && now - idle.peekLast().lastUsedNanos > idleTimeoutNanos) {
+            destroy(idle.pollLast());
+            evicted.increment();
+        }
+        boolean oldest = true;
+        for (Iterator<PooledConnection> it = connections.iterator(); it.hasNext();) {
+            PooledConnection connection = it.next();
+            boolean keep = oldest && !connection.failed;
+            oldest = false;
+            if (connection.sessions == 0 && !keep) {
+                it.remove();
+                connection.close();
+            }
+        }
+    }
+
+    // Checks the connections kept open without sessions by opening and closing a session on them
+    private void checkConnections() {
+        List<PooledConnection> unchecked = new ArrayList<>();
+        synchronized (this) {
+            for (PooledConnection connection : connections) {
+                if (!connection.failed && connection.sessions == 0) {
+                    unchecked.add(connection);
+                }
+            }
+        }
+        for (PooledConnection connection : unchecked) {
+            try {
+                connection.connection.createSession(false, Session.AUTO_ACKNOWLEDGE).close();
+            } catch (JMSException ex) {
+                connection.fail(ex);
+            }
+        }
+    }
+
+    private class PooledConnection {
+        final Connection connection;
+        volatile boolean failed;
+        int sessions;
+
+        PooledConnection(Connection connection) throws JMSException {
+            this.connection = connection;
+            connection.setExceptionListener(this::fail);
+            connection.start();
+        }
+
+        void fail(JMSException ex) {
+            if (!failed) {
+                failed = true;
+                failedConnections.increment();
+                System.out.printf("Pooled connection failed: %s%n", ex);
+            }
+        }
+
+        void close() {
+            try {
+                connection.close();
+            } catch (JMSException ex) {
+                // Already gone
+            }
+        }
+    }
+
+    /**
+     * A session borrowed from a {@link ConnectionPool}, to be used by one thread at a time and returned by
+     * {@link #close()}.
+     */
+    public class PooledSession implements AutoCloseable {
+        private final PooledConnection connection;
+        private final Session session;
+        private final Map<Destination, MessageProducer> producers;
+
+        long lastUsedNanos;
+        volatile long borrowedNanos;
+        volatile Exception borrowTrace;
+        volatile boolean leakReported;
+        private boolean returned;
+        private boolean invalid;
+
+        PooledSession(PooledConnection connection, Session session) {
+            this.connection = connection;
+            this.session = session;
+            this.producers = new LinkedHashMap<Destination, MessageProducer>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Destination, MessageProducer> eldest) {
+                    if (size() > MAX_PRODUCERS_PER_SESSION) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        public Session getSession() {
+            return session;
+        }
+
+        /**
+         * Returns the cached producer for {@code destination}, creating it on first use. Producers stay open while
+         * the session is in the pool, so settings changed on them carry over to later borrowers; pass the delivery
+         * mode, priority and time to live to {@code send} instead.
+         */
+        public MessageProducer getProducer(Destination destination) throws JMSException {
+            MessageProducer producer = producers.get(destination);
+            if (producer == null) {
+                producer = session.createProducer(destination);
+                producers.put(destination, producer);
+            }
+            return producer;
+        }
+
+        /**
+         * Makes the session be closed instead of returned to the pool, e.g. after it failed or left state behind.
+         */
+        public void invalidate() {
+            invalid = true;
+        }
+
+        /**
+         * Returns the session to the pool. The session must not be used afterwards.
+         */
+        @Override
+        public void close() {
+            if (!returned) {
+                returned = true;
+                borrowTrace = null;
+                release(this, !invalid);
+            }
+        }
+
+        void closeQuietly() {
+            for (MessageProducer producer : producers.values()) {
+                closeQuietly(producer);
+            }
+            producers.clear();
+            try {
+                session.close();
+            } catch (JMSException ex) {
+                // The connection is already gone
+            }
+        }
+
+        private void closeQuietly(MessageProducer producer) {
+            try {
+                producer.close();
+            } catch (JMSException ex) {
+                // The link is already gone
+            }
+        }
+    }
+}
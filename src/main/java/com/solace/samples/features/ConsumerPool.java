@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ConsumerPool
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.JmsSession;
+
+/**
+ * Consumes one queue with several workers in parallel and reports per-worker throughput and lag every second.
+ *
+ * In the default mode every worker has its own session and consumer, spread round-robin over one or more
+ * connections, and the broker distributes the queue's messages between them. This scales with cores but gives up
+ * ordering. When a key property is given, a single receiving session on a single connection dispatches each message
+ * to the worker chosen by hashing that property instead, so messages with the same key are always handled in order by
+ * the same worker. The workers then acknowledge their messages individually (qpid-jms INDIVIDUAL_ACKNOWLEDGE mode),
+ * as a session-wide acknowledgement would also cover messages other workers have not handled yet.
+ *
+ * Lag is the time between the producer's client stamping a message's JMSTimestamp and a worker handling it, so it
+ * includes any clock offset between the producer's and the consumer's host.
+ */
+public class ConsumerPool implements AutoCloseable {
+
+    // Messages queued per worker in keyed mode before the receiving session is held back
+    static final int WORKER_BACKLOG = 1000;
+
+    private final ConnectionFactory connectionFactory;
+    private final String queueName;
+    private final int workerCount;
+    private final int connectionCount;
+    private final String keyProperty;
+    private final MessageListener handler;
+
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * @param connectionCount number of connections, which must be 1 with a key property
+     * @param keyProperty     message property to keep ordering by, or null to consume without ordering
+     * @param handler         called by the workers for every message; the pool acknowledges it afterwards
+     * @throws IllegalArgumentException if a key property is given with more than one connection
+     */
+    public ConsumerPool(ConnectionFactory connectionFactory, String queueName, int workerCount, int connectionCount,
+            String keyProperty, MessageListener handler) {
+        if (keyProperty != null && connectionCount != 1) {
+            throw new IllegalArgumentException("Ordering by a key property needs a single connection, not "
+                    + connectionCount);
+        }
+        this.connectionFactory = connectionFactory;
+        this.queueName = queueName;
+        this.workerCount = workerCount;
+        this.connectionCount = connectionCount;
+        this.keyProperty = keyProperty;
+        this.handler = handler;
+    }
+
+    public void start() throws JMSException {
+        for (int i = 0; i < connectionCount; i++) {
+            connections.add(connectionFactory.createConnection());
+        }
+        if (keyProperty == null) {
+            for (int i = 0; i < workerCount; i++) {
+                Worker worker = new Worker(i);
+                Session session = connections.get(i % connectionCount).createSession(false,
+                        Session.CLIENT_ACKNOWLEDGE);
+                Queue queue = session.createQueue(queueName);
+                MessageConsumer consumer = session.createConsumer(queue);
+                consumer.setMessageListener(message -> worker.handle(message));
+                workers.add(worker);
+            }
+        } else {
+            for (int i = 0; i < workerCount; i++) {
+                Worker worker = new Worker(i);
+                worker.backlog = new ArrayBlockingQueue<>(WORKER_BACKLOG);
+                worker.thread = new Thread(worker::drain, "consumer-worker-" + i);
+                worker.thread.start();
+                workers.add(worker);
+            }
+            Session session = connections.get(0).createSession(false, JmsSession.INDIVIDUAL_ACKNOWLEDGE);
+            Queue queue = session.createQueue(queueName);
+            MessageConsumer consumer = session.createConsumer(queue);
+            consumer.setMessageListener(this::dispatch);
+        }
+        reporter.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.SECONDS);
+        for (Connection connection : connections) {
+            connection.start();
+        }
+    }
+
+    @Override
+    public void close() throws JMSException {
+        reporter.shutdown();
+        for (Connection connection : connections) {
+            connection.stop();
+        }
+        for (Worker worker : workers) {
+            if (worker.thread != null) {
+                worker.thread.interrupt();
+            }
+        }
+        // Closing the connections closes their sessions, unacknowledged messages are redelivered
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    // Called on the receiving session's thread in keyed mode
+    private void dispatch(Message message) {
+        try {
+            Object key = message.getObjectProperty(keyProperty);
+            int index = key == null ? 0 : Math.floorMod(key.hashCode() * 0x9E3779B9, workerCount);
+            // Blocks while the worker is saturated, which holds back the session's delivery and link credit
+            workers.get(index).backlog.put(message);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (JMSException ex) {
+            System.out.println("Error dispatching incoming message.");
+            ex.printStackTrace();
+        }
+    }
+
+    private void report() {
+        StringBuilder line = new StringBuilder();
+        long total = 0;
+        for (Worker worker : workers) {
+            long processed = worker.processed.sum();
+            long rate = processed - worker.lastProcessed;
+            worker.lastProcessed = processed;
+            total += rate;
+            worker.intervalLag.reset();
+            worker.lag.drainTo(worker.intervalLag);
+            line.append(String.format(" [w%d %d msgs/s lag(ms) p50=%d max=%d", worker.index, rate,
+                    worker.intervalLag.getValueAtPercentile(50.0), worker.intervalLag.getMaxValue()));
+            if (worker.backlog != null) {
+                line.append(" backlog=").append(worker.backlog.size());
+            }
+            line.append(']');
+        }
+        System.out.printf("%d msgs/s:%s%n", total, line);
+    }
+
+    private class Worker {
+        final int index;
+        final LongAdder processed = new LongAdder();
+        final Histogram lag = new Histogram();
+        final Histogram intervalLag = new Histogram();
+        long lastProcessed;
+        BlockingQueue<Message> backlog;
+        Thread thread;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        void drain() {
+            try {
+                while (true) {
+                    handle(backlog.take());
+                }
+            } catch (InterruptedException ex) {
+                // Pool is closing
+            }
+        }
+
+        void handle(Message message) {
+            try {
+                handler.onMessage(message);
+                message.acknowledge();
+                processed.increment();
+                long timestamp = message.getJMSTimestamp();
+                if (timestamp != 0) {
+                    lag.recordValue(System.currentTimeMillis() - timestamp);
+                }
+            } catch (Exception ex) {
+                System.out.printf("Worker %d failed processing incoming message.%n", index);
+                ex.printStackTrace();
+            }
+        }
+    }
+}
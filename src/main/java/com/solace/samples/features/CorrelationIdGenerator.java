@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: CorrelationIdGenerator
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates correlation IDs of the form {@code <prefix>-<sequence>} and maps correlation IDs found in replies back to
+ * their sequence number.
+ *
+ * The prefix is random per generator, so replies meant for other requestors are recognised and ignored. Compared to
+ * {@code UUID.randomUUID()} a new ID costs an atomic increment instead of a call to the secure random generator, and
+ * parsing a reply's ID neither allocates nor uses regular expressions, with or without the "ID:" prefix that Apache
+ * Qpid JMS may add.
+ */
+public class CorrelationIdGenerator {
+
+    private static final String QPID_ID_PREFIX = "ID:";
+
+    private final String prefix;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CorrelationIdGenerator() {
+        this.prefix = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE) + "-";
+    }
+
+    public long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    public String toCorrelationId(long sequence) {
+        return prefix + sequence;
+    }
+
+    /**
+     * @return the sequence number encoded in {@code correlationId}, or -1 if it was not generated here
+     */
+    public long parse(String correlationId) {
+        if (correlationId == null) {
+            return -1;
+        }
+        int start = correlationId.startsWith(QPID_ID_PREFIX) ? QPID_ID_PREFIX.length() : 0;
+        int digits = start + prefix.length();
+        int length = correlationId.length();
+        if (length <= digits || length - digits > 18
+                || !correlationId.regionMatches(start, prefix, 0, prefix.length())) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = digits; i < length; i++) {
+            char c = correlationId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Compares a correlation ID from a reply to the one sent, ignoring the "ID:" prefix Apache Qpid JMS may add.
+     */
+    public static boolean matches(String replyCorrelationId, String requestCorrelationId) {
+        if (replyCorrelationId == null) {
+            return false;
+        }
+        int start = replyCorrelationId.startsWith(QPID_ID_PREFIX) && !requestCorrelationId.startsWith(QPID_ID_PREFIX)
+                ? QPID_ID_PREFIX.length() : 0;
+        return replyCorrelationId.length() - start == requestCorrelationId.length()
+                && replyCorrelationId.regionMatches(start, requestCorrelationId, 0, requestCorrelationId.length());
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: DeduplicatingListener
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+/**
+ * Passes messages on to a listener unless a {@link DuplicateFilter} has seen their key, which is the JMSMessageID or
+ * the value of a property such as a business key.
+ *
+ * A key is only remembered once the listener returns, so a message whose handling failed is handled again when it is
+ * redelivered. Duplicates are acknowledged, as their original was, so that they are not delivered yet again. Keyed on
+ * the message ID, only messages flagged as redelivered are looked up, as a new message ID cannot be a duplicate and
+ * the filter's false positives would drop it.
+ */
+public class DeduplicatingListener implements MessageListener {
+
+    private final DuplicateFilter filter;
+    private final String keyProperty;
+    private final MessageListener listener;
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder unkeyed = new LongAdder();
+
+    /**
+     * @param keyProperty the property holding the key, or null to use the JMSMessageID
+     */
+    public DeduplicatingListener(DuplicateFilter filter, String keyProperty, MessageListener listener) {
+        this.filter = filter;
+        this.keyProperty = keyProperty;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        try {
+            String key = keyProperty == null ? message.getJMSMessageID() : message.getStringProperty(keyProperty);
+            if (key == null) {
+                unkeyed.increment();
+                listener.onMessage(message);
+                return;
+            }
+            boolean lookUp = keyProperty != null || message.getJMSRedelivered();
+            if (lookUp && filter.mightContain(key)) {
+                duplicates.increment();
+                message.acknowledge();
+                return;
+            }
+            listener.onMessage(message);
+            filter.add(key);
+        } catch (JMSException ex) {
+            System.out.println("Error processing incoming message.");
+            ex.printStackTrace();
+        }
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    public String summary() {
+        return String.format("%d duplicates dropped, %d messages without a key, filter: %s", duplicates.sum(),
+                unkeyed.sum(), filter.summary());
+    }
+}
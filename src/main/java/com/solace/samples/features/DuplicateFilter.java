@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: DuplicateFilter
+ */
+
+package com.solace.samples.features;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the keys of recently handled messages in fixed memory, to recognize messages that are delivered again.
+ *
+ * The keys are kept in a ring of Bloom filters, called generations. Keys are added to the newest generation, which is
+ * replaced by a cleared one every {@code windowMillis / (generations - 1)}, or earlier if it holds more keys than it
+ * was sized for; lookups check all generations. So a key is remembered for at least the window, or for the expected
+ * number of keys per window if more arrive, and at most for a window and one generation. Each lookup and addition
+ * costs a fixed number of hash probes per generation, however many keys are remembered.
+ *
+ * A Bloom filter can answer that it has seen a key it has not; each generation is sized so that, filled with the
+ * expected keys, the chance of that summed over the generations is {@code falsePositiveRate}. It never misses a key it
+ * has seen within the window.
+ */
+public class DuplicateFilter {
+
+    public static final int DEFAULT_GENERATIONS = 4;
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final long[][] generations;
+    private final long[] bitsSet;
+    private final long[] keys;
+    private final long bitCount;
+    private final int hashCount;
+    private final long keysPerGeneration;
+    private final long rotationNanos;
+    private int current;
+    private long rotatedAtNanos = System.nanoTime();
+
+    private long lookups;
+    private long hits;
+    private long rotations;
+    private long earlyRotations;
+
+    public DuplicateFilter(long expectedKeysPerWindow, double falsePositiveRate, long windowMillis) {
+        this(expectedKeysPerWindow, falsePositiveRate, windowMillis, DEFAULT_GENERATIONS);
+    }
+
+    /**
+     * @param expectedKeysPerWindow keys expected to be added within the window
+     * @param falsePositiveRate     chance that a key not seen is reported as seen, e.g. 0.001
+     * @param generations           number of Bloom filters, at least 2; more make the window more exact
+     */
+    public DuplicateFilter(long expectedKeysPerWindow, double falsePositiveRate, long windowMillis,
+            int generations) {
+        if (generations < 2 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Need at least 2 generations and a rate between 0 and 1");
+        }
+        keysPerGeneration = Math.max(1, expectedKeysPerWindow / (generations - 1));
+        double generationRate = falsePositiveRate / generations;
+        double bits = -keysPerGeneration * Math.log(generationRate) / (Math.log(2) * Math.log(2));
+        // Rounded up to whole words, within the range of the multiply-shift reduction
+        bitCount = Math.min((long) Math.ceil(bits / 64) * 64, 1L << 31);
+        hashCount = Math.max(1, (int) Math.round(bitCount / (double) keysPerGeneration * Math.log(2)));
+        rotationNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis) / (generations - 1);
+        this.generations = new long[generations][(int) (bitCount / 64)];
+        this.bitsSet = new long[generations];
+        this.keys = new long[generations];
+    }
+
+    /**
+     * @return true if {@code key} was added within the window, or falsely so at the configured rate
+     */
+    public synchronized boolean mightContain(CharSequence key) {
+        rotateIfDue();
+        lookups++;
+        long hash = hash(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ GOLDEN_RATIO) | 1;
+        for (long[] bits : generations) {
+            if (contains(bits, h1, h2)) {
+                hits++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(CharSequence key) {
+        rotateIfDue();
+        if (keys[current] >= keysPerGeneration) {
+            // More keys than expected, rotating early keeps the false positive rate at the cost of a shorter window
+            rotate();
+            earlyRotations++;
+        }
+        long hash = hash(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ GOLDEN_RATIO) | 1;
+        long[] bits = generations[current];
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1 + i * h2);
+            long mask = 1L << index;
+            if ((bits[index >>> 6] & mask) == 0) {
+                bits[index >>> 6] |= mask;
+                bitsSet[current]++;
+            }
+        }
+        keys[current]++;
+    }
+
+    /**
+     * @return the share of lookups that found their key
+     */
+    public synchronized double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the current chance of reporting a key not seen as seen, estimated from how full the filters are
+     */
+    public synchronized double getFalsePositiveRate() {
+        double rate = 0;
+        for (long set : bitsSet) {
+            rate += Math.pow((double) set / bitCount, hashCount);
+        }
+        return Math.min(1, rate);
+    }
+
+    /**
+     * @return the bytes held by the filters, which does not change with the number of keys
+     */
+    public long getMemoryBytes() {
+        return generations.length * bitCount / 8;
+    }
+
+    public synchronized String summary() {
+        long remembered = 0;
+        for (long count : keys) {
+            remembered += count;
+        }
+        return String.format("%d lookups, %.3f%% hits, %d keys remembered, %.1f MB, false positives %.4f%%, "
+                + "%d rotations (%d early)", lookups, getHitRate() * 100, remembered, getMemoryBytes() / 1048576.0,
+                getFalsePositiveRate() * 100, rotations, earlyRotations);
+    }
+
+    private boolean contains(long[] bits, long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1 + i * h2);
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long hash) {
+        // Maps the upper 32 bits onto [0, bitCount) without a division
+        return (int) (((hash >>> 32) * bitCount) >>> 32);
+    }
+
+    private void rotateIfDue() {
+        long now = System.nanoTime();
+        // After a long pause, clearing every generation once is enough
+        for (int i = 0; i < generations.length && now - rotatedAtNanos >= rotationNanos; i++) {
+            rotate();
+            rotatedAtNanos += rotationNanos;
+        }
+        if (now - rotatedAtNanos >= rotationNanos) {
+            rotatedAtNanos = now;
+        }
+    }
+
+    private void rotate() {
+        current = (current + 1) % generations.length;
+        Arrays.fill(generations[current], 0);
+        bitsSet[current] = 0;
+        keys[current] = 0;
+        rotations++;
+    }
+
+    private static long hash(CharSequence key) {
+        // 64-bit FNV-1a
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        // Finalizer of MurmurHash3
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
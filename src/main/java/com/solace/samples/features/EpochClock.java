@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: EpochClock
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A wall clock with nanosecond resolution for timestamps that are compared between processes.
+ *
+ * {@link System#currentTimeMillis()} only has millisecond resolution on Java 8, and {@link System#nanoTime()} has no
+ * fixed origin. This clock anchors {@code nanoTime()} to the wall clock once, at the exact moment the wall clock's
+ * millisecond ticks over, so processes on the same host agree to within a few microseconds. Timestamps taken on
+ * different hosts are only as comparable as the hosts' clocks are synchronized.
+ */
+public final class EpochClock {
+
+    private static final long ANCHOR_NANOS = calibrate();
+
+    private EpochClock() {
+    }
+
+    /**
+     * @return nanoseconds since the epoch
+     */
+    public static long nanos() {
+        return ANCHOR_NANOS + System.nanoTime();
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} value of this process to nanoseconds since the epoch.
+     */
+    public static long fromNanoTime(long nanoTime) {
+        return ANCHOR_NANOS + nanoTime;
+    }
+
+    private static long calibrate() {
+        long millis = System.currentTimeMillis();
+        long tick;
+        do {
+            // Spin until the next millisecond starts
+            tick = System.currentTimeMillis();
+        } while (tick == millis);
+        return TimeUnit.MILLISECONDS.toNanos(tick) - System.nanoTime();
+    }
+}
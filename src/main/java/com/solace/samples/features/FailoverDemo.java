@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: FailoverDemo
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsQueue;
+import org.apache.qpid.jms.JmsTopic;
+
+/**
+ * Shows a {@link FailoverPublisher} and a {@link FailoverRequestor} switching between two persistent {@link
+ * LocalBroker}s.
+ *
+ * The publisher sends at a fixed rate while the primary broker is stopped halfway through and restarted after three
+ * quarters; both queues are then drained and the sequence numbers checked for lost and duplicate messages. The
+ * requestor then sends requests to repliers on both brokers while the broker it uses is stopped halfway through, and
+ * the failed requests and the requests handled twice are counted. Both report their time to recover.
+ */
+public class FailoverDemo {
+
+    final String QUEUE_NAME = "Q/tutorial/failover";
+    final String REQUEST_TOPIC_NAME = "T/GettingStarted/requests";
+
+    static final int PRIMARY_PORT = LocalBroker.DEFAULT_PORT;
+    static final int SECONDARY_PORT = LocalBroker.DEFAULT_PORT + 1;
+    static final long REQUEST_TIMEOUT_MILLIS = 5000;
+
+    private void run(String... args) throws Exception {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int messagesPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        Path primaryData = Files.createTempDirectory("primary-broker");
+        Path secondaryData = Files.createTempDirectory("secondary-broker");
+        LocalBroker primary = new LocalBroker(PRIMARY_PORT, primaryData.toFile());
+        LocalBroker secondary = new LocalBroker(SECONDARY_PORT, secondaryData.toFile());
+        primary.start();
+        secondary.start();
+        System.out.printf("FailoverDemo is using the local brokers at %s and %s...%n", primary.getUrl(),
+                secondary.getUrl());
+        ConnectionFactory primaryFactory = new JmsConnectionFactory("failover", "failover", primary.getUrl());
+        ConnectionFactory secondaryFactory = new JmsConnectionFactory("failover", "failover", secondary.getUrl());
+        try {
+            runPublisher(primary, primaryFactory, secondaryFactory, messageCount, messagesPerSecond);
+            runRequestor(primary, primaryFactory, secondaryFactory, messageCount, messagesPerSecond);
+        } finally {
+            primary.stop();
+            secondary.stop();
+            delete(primaryData);
+            delete(secondaryData);
+        }
+    }
+
+    private void runPublisher(LocalBroker primary, ConnectionFactory primaryFactory,
+            ConnectionFactory secondaryFactory, int messageCount, int messagesPerSecond) throws Exception {
+        System.out.printf("Publishing %d messages at %d msgs/s...%n", messageCount, messagesPerSecond);
+        FailoverPublisher publisher = new FailoverPublisher(primaryFactory, secondaryFactory,
+                new JmsQueue(QUEUE_NAME), FailoverPublisher.DEFAULT_MAX_UNSETTLED);
+        publisher.start();
+        RateLimiter limiter = new RateLimiter(messagesPerSecond);
+        for (int i = 0; i < messageCount; i++) {
+            if (i == messageCount / 2) {
+                System.out.printf("Stopping the primary broker after %d messages...%n", i);
+                primary.stop();
+            } else if (i == messageCount * 3 / 4) {
+                System.out.printf("Restarting the primary broker after %d messages...%n", i);
+                primary.start();
+            }
+            limiter.acquire();
+            publisher.send(("Failover message #" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        if (!publisher.flush(30, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for unsettled messages.");
+        }
+        System.out.println(publisher.summary());
+        publisher.close();
+
+        BitSet received = new BitSet(messageCount);
+        long duplicates = drain(primaryFactory, received) + drain(secondaryFactory, received);
+        System.out.printf("Received %d of %d messages from both brokers, %d lost, %d duplicates.%n",
+                received.cardinality(), messageCount, messageCount - received.cardinality(), duplicates);
+    }
+
+    private void runRequestor(LocalBroker primary, ConnectionFactory primaryFactory,
+            ConnectionFactory secondaryFactory, int requestCount, int requestsPerSecond) throws Exception {
+        System.out.printf("Sending %d requests at %d requests/s...%n", requestCount, requestsPerSecond);
+        BitSet handled = new BitSet(requestCount);
+        AtomicLong handledTwice = new AtomicLong();
+        ReplierService.RequestHandler handler = (request, reply) -> {
+            int number = Integer.parseInt(((TextMessage) request).getText());
+            synchronized (handled) {
+                if (handled.get(number)) {
+                    handledTwice.incrementAndGet();
+                }
+                handled.set(number);
+            }
+            reply.setText("Sample response");
+        };
+        Connection primaryConnection = primaryFactory.createConnection();
+        Connection secondaryConnection = secondaryFactory.createConnection();
+        Topic requestTopic = new JmsTopic(REQUEST_TOPIC_NAME);
+        ReplierService primaryReplier = new ReplierService(primaryConnection, requestTopic, 4, false, handler);
+        ReplierService secondaryReplier = new ReplierService(secondaryConnection, requestTopic, 4, false, handler);
+        primaryConnection.start();
+        secondaryConnection.start();
+
+        FailoverRequestor requestor = new FailoverRequestor(primaryFactory, secondaryFactory, requestTopic);
+        requestor.start();
+        CompletableFuture<?>[] replies = new CompletableFuture<?>[requestCount];
+        RateLimiter limiter = new RateLimiter(requestsPerSecond);
+        for (int i = 0; i < requestCount; i++) {
+            if (i == requestCount / 2) {
+                System.out.printf("Stopping the primary broker after %d requests...%n", i);
+                primary.stop();
+            }
+            limiter.acquire();
+            replies[i] = requestor.request(String.valueOf(i), REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        long failed = 0;
+        for (CompletableFuture<?> reply : replies) {
+            try {
+                reply.get();
+            } catch (Exception ex) {
+                failed++;
+            }
+        }
+        System.out.println(requestor.summary());
+        System.out.printf("%d of %d requests failed, %d were handled twice.%n", failed, requestCount,
+                handledTwice.get());
+        requestor.close();
+        secondaryReplier.close();
+        secondaryConnection.close();
+        try {
+            primaryReplier.close();
+            primaryConnection.close();
+        } catch (JMSException ex) {
+            // The connection was dropped when the broker stopped
+        }
+    }
+
+    /**
+     * @return the number of messages received that were already in {@code received}
+     */
+    private long drain(ConnectionFactory connectionFactory, BitSet received) throws Exception {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE_NAME));
+            connection.start();
+            long duplicates = 0;
+            Message message;
+            while ((message = consumer.receive(2000)) != null) {
+                int sequence = (int) message.getLongProperty(FailoverPublisher.SEQUENCE_PROPERTY);
+                if (received.get(sequence)) {
+                    duplicates++;
+                }
+                received.set(sequence);
+            }
+            return duplicates;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length > 0 && !Character.isDigit(args[0].charAt(0))) {
+            System.out.println("Usage: FailoverDemo [<message_count> <msgs_per_sec>]");
+            System.exit(-1);
+        }
+        new FailoverDemo().run(args);
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: FailoverPublisher
+ */
+
+package com.solace.samples.features;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.BytesMessage;
+import javax.jms.CompletionListener;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Sends persistent messages asynchronously to a primary broker with a {@link WarmStandby} producer on a secondary
+ * broker, replaying the unsettled messages on the standby when the active broker fails.
+ *
+ * Every payload is kept until the broker settles it, up to {@code maxUnsettled} at a time, after which sending blocks.
+ * After a failover all unsettled payloads are sent again in order on the new producer before any new one. Payloads
+ * the failed broker had accepted without settling them are then on both brokers; each message carries its sequence
+ * number in the {@value #SEQUENCE_PROPERTY} property to recognize them.
+ *
+ * Only connection failures, reported to the connection's exception listener or seen as a closed session, cause a
+ * failover. A payload the broker rejects, e.g. for lack of quota or permissions, is counted as failed and dropped.
+ *
+ * Like a session, a FailoverPublisher must only be used from one thread at a time.
+ */
+public class FailoverPublisher implements AutoCloseable {
+
+    public static final String SEQUENCE_PROPERTY = "FailoverSequence";
+    public static final int DEFAULT_MAX_UNSETTLED = 1000;
+
+    private final WarmStandby<Links> standby;
+    private final int maxUnsettled;
+    private final Semaphore window;
+    private final ConcurrentSkipListMap<Long, byte[]> unsettled = new ConcurrentSkipListMap<>();
+    private final AtomicLong settled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long nextSequence;
+    private long replayed;
+    // Links the unsettled payloads were last sent on, guarded by this
+    private Links sendingOn;
+
+    public FailoverPublisher(ConnectionFactory primary, ConnectionFactory secondary, Destination destination,
+            int maxUnsettled) {
+        this.maxUnsettled = maxUnsettled;
+        this.window = new Semaphore(maxUnsettled);
+        this.standby = new WarmStandby<>(primary, secondary, connection -> {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(destination);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            return new Links(session, producer);
+        }, links -> links.session.close());
+        standby.setFailoverListener((failed, active) -> replayIfFailedOver());
+    }
+
+    /**
+     * Connects to the primary broker and the standby.
+     */
+    public synchronized void start() throws JMSException {
+        standby.start();
+        sendingOn = standby.get();
+    }
+
+    /**
+     * Sends a payload as a bytes message, blocking while {@code maxUnsettled} payloads are unsettled.
+     *
+     * @return the sequence number of the payload
+     * @throws JMSException if neither broker is available
+     */
+    public long send(byte[] payload) throws JMSException, InterruptedException {
+        window.acquire();
+        synchronized (this) {
+            long sequence = nextSequence++;
+            unsettled.put(sequence, payload);
+            while (true) {
+                Links links = standby.get();
+                try {
+                    if (links != sendingOn) {
+                        replay(links);
+                    } else {
+                        send(links, sequence, payload);
+                    }
+                    return sequence;
+                } catch (IllegalStateException ex) {
+                    // The session or connection is closed
+                    standby.failover(links);
+                } catch (JMSException ex) {
+                    if (unsettled.remove(sequence) != null) {
+                        failed.incrementAndGet();
+                        window.release();
+                    }
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until every payload sent so far has been settled.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!window.tryAcquire(maxUnsettled, 100, TimeUnit.MILLISECONDS)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            // Replays that failed in the background are retried here
+            replayIfFailedOver();
+        }
+        window.release(maxUnsettled);
+        return true;
+    }
+
+    public long getSettledCount() {
+        return settled.get();
+    }
+
+    /**
+     * @return the number of payloads the broker rejected
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the times from the detection of a failure to the first settled message afterwards, in nanoseconds
+     */
+    public Histogram getRecoveryTimes() {
+        return standby.getRecoveryTimes();
+    }
+
+    public synchronized String summary() {
+        return String.format("sent %d, settled %d, failed %d, replayed %d, unsettled %d, %s", nextSequence,
+                settled.get(), failed.get(), replayed, unsettled.size(), standby.summary());
+    }
+
+    @Override
+    public void close() {
+        standby.close();
+    }
+
+    private synchronized void replayIfFailedOver() {
+        try {
+            Links links = standby.get();
+            if (links != sendingOn) {
+                replay(links);
+            }
+        } catch (JMSException ex) {
+            // The next send or flush tries again
+        }
+    }
+
+    private void replay(Links links) throws JMSException {
+        sendingOn = links;
+        for (Map.Entry<Long, byte[]> entry : unsettled.entrySet()) {
+            send(links, entry.getKey(), entry.getValue());
+            replayed++;
+        }
+    }
+
+    private void send(Links links, long sequence, byte[] payload) throws JMSException {
+        BytesMessage message = links.session.createBytesMessage();
+        message.writeBytes(payload);
+        message.setLongProperty(SEQUENCE_PROPERTY, sequence);
+        links.producer.send(message, new Settlement(links, sequence));
+    }
+
+    static final class Links {
+        final Session session;
+        final MessageProducer producer;
+
+        Links(Session session, MessageProducer producer) {
+            this.session = session;
+            this.producer = producer;
+        }
+    }
+
+    private class Settlement implements CompletionListener {
+        private final Links links;
+        private final long sequence;
+
+        Settlement(Links links, long sequence) {
+            this.links = links;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            // A replayed payload may be settled by both brokers
+            if (unsettled.remove(sequence) != null) {
+                settled.incrementAndGet();
+                window.release();
+                standby.recovered();
+            }
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            if (exception instanceof IllegalStateException) {
+                // Failed with the connection, kept for the replay after the failover
+                standby.reportFailure(links);
+            } else if (unsettled.remove(sequence) != null) {
+                // Rejected by the broker, which would reject it on the standby as well
+                failed.incrementAndGet();
+                window.release();
+                System.out.printf("Message #%d was not accepted by the broker: %s%n", sequence, exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: FailoverRequestor
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * An {@link AsyncRequestor} on a primary broker with a {@link WarmStandby} requestor, including its temporary reply
+ * queue, on a secondary broker.
+ *
+ * When the active broker fails, the outstanding requests fail as their requestor is closed and are sent again on the
+ * standby within their original timeout. A new requestor with a new reply queue is created on the failed broker once
+ * it is back, to become the standby. A request that reached a replier before the failure may be handled twice.
+ */
+public class FailoverRequestor implements AutoCloseable {
+
+    private final TimerWheel timerWheel = new TimerWheel();
+    private final WarmStandby<AsyncRequestor> standby;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public FailoverRequestor(ConnectionFactory primary, ConnectionFactory secondary, Destination requestDestination) {
+        this.standby = new WarmStandby<>(primary, secondary,
+                connection -> new AsyncRequestor(connection, requestDestination, timerWheel), AsyncRequestor::close);
+    }
+
+    /**
+     * Connects to the primary broker and the standby.
+     */
+    public void start() throws JMSException {
+        standby.start();
+    }
+
+    /**
+     * Sends a text request and returns a future for its reply, which fails with a {@link TimeoutException} if no
+     * broker replies in time.
+     */
+    public CompletableFuture<Message> request(String text, long timeout, TimeUnit unit) {
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        attempt(text, System.nanoTime() + unit.toNanos(timeout), result);
+        return result;
+    }
+
+    /**
+     * @return the times from the detection of a failure to the first reply afterwards, in nanoseconds
+     */
+    public Histogram getRecoveryTimes() {
+        return standby.getRecoveryTimes();
+    }
+
+    public String summary() {
+        return String.format("completed %d, failed %d, sent again %d, %s", completed.sum(), failed.sum(),
+                retried.sum(), standby.summary());
+    }
+
+    @Override
+    public void close() {
+        standby.close();
+        timerWheel.close();
+    }
+
+    private void attempt(String text, long deadlineNanos, CompletableFuture<Message> result) {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            failed.increment();
+            result.completeExceptionally(new TimeoutException("No reply received for request '" + text + "'"));
+            return;
+        }
+        AsyncRequestor requestor;
+        try {
+            requestor = standby.get();
+        } catch (JMSException ex) {
+            failed.increment();
+            result.completeExceptionally(ex);
+            return;
+        }
+        CompletableFuture<Message> reply;
+        try {
+            reply = requestor.request(requestor.createTextMessage(text), remaining, TimeUnit.NANOSECONDS);
+        } catch (JMSException ex) {
+            retry(requestor, text, deadlineNanos, result);
+            return;
+        }
+        reply.whenComplete((message, exception) -> {
+            if (exception == null) {
+                completed.increment();
+                standby.recovered();
+                result.complete(message);
+            } else if (exception instanceof TimeoutException) {
+                failed.increment();
+                result.completeExceptionally(exception);
+            } else {
+                // Failed to send, or the requestor was closed by a failover
+                retry(requestor, text, deadlineNanos, result);
+            }
+        });
+    }
+
+    private void retry(AsyncRequestor requestor, String text, long deadlineNanos, CompletableFuture<Message> result) {
+        retried.increment();
+        try {
+            standby.failover(requestor);
+        } catch (JMSException ex) {
+            failed.increment();
+            result.completeExceptionally(ex);
+            return;
+        }
+        attempt(text, deadlineNanos, result);
+    }
+}
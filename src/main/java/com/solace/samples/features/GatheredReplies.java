@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: GatheredReplies
+ */
+
+package com.solace.samples.features;
+
+import javax.jms.Message;
+
+/**
+ * The replies collected for one scatter-gather request of an {@link AsyncRequestor}, together with the ID of the
+ * replier that sent each of them and the time it took to arrive.
+ *
+ * The arrays are allocated once, sized for the expected number of replies, and filled in arrival order on the reply
+ * listener's thread. The aggregation is finished when enough replies are in or the deadline has passed; after that it
+ * no longer changes and may be read from any thread.
+ */
+public class GatheredReplies {
+
+    private final int expected;
+    private final int quorum;
+    private final Message[] replies;
+    private final String[] replierIds;
+    private final long[] latencyNanos;
+    private int count;
+    private boolean finished;
+
+    GatheredReplies(int expected, int quorum) {
+        this.expected = expected;
+        this.quorum = quorum;
+        this.replies = new Message[expected];
+        this.replierIds = new String[expected];
+        this.latencyNanos = new long[expected];
+    }
+
+    /**
+     * @return false if the aggregation was already finished or is full, so the reply is late
+     */
+    synchronized boolean add(Message reply, String replierId, long latency) {
+        // Full before finish() when the deadline passed just as the expected replies were in
+        if (finished || count == replies.length) {
+            return false;
+        }
+        replies[count] = reply;
+        replierIds[count] = replierId;
+        latencyNanos[count] = latency;
+        count++;
+        return true;
+    }
+
+    /**
+     * @return true if the quorum or the expected count has been reached
+     */
+    synchronized boolean isSatisfied() {
+        return count == expected || (quorum > 0 && count >= quorum);
+    }
+
+    synchronized void finish() {
+        finished = true;
+    }
+
+    public int getExpectedCount() {
+        return expected;
+    }
+
+    public synchronized int getReplyCount() {
+        return count;
+    }
+
+    /**
+     * @return true if at least the quorum, or with no quorum at least one reply, was received
+     */
+    public synchronized boolean isQuorumReached() {
+        return count >= Math.max(quorum, 1);
+    }
+
+    /**
+     * @return true if all expected replies were received
+     */
+    public synchronized boolean isComplete() {
+        return count == expected;
+    }
+
+    public synchronized Message getReply(int index) {
+        checkIndex(index);
+        return replies[index];
+    }
+
+    /**
+     * @return the value of the {@value AsyncRequestor#REPLIER_ID_PROPERTY} property of the reply, or null if it was
+     *         not set
+     */
+    public synchronized String getReplierId(int index) {
+        checkIndex(index);
+        return replierIds[index];
+    }
+
+    public synchronized long getLatencyNanos(int index) {
+        checkIndex(index);
+        return latencyNanos[index];
+    }
+
+    public synchronized String summary() {
+        StringBuilder summary = new StringBuilder(32 + count * 32);
+        summary.append(String.format("%d of %d replies%s:", count, expected,
+                quorum > 0 ? (count >= quorum ? ", quorum reached" : ", no quorum") : ""));
+        for (int i = 0; i < count; i++) {
+            summary.append(String.format(" %s=%.1fms", replierIds[i], latencyNanos[i] / 1e6));
+        }
+        return summary.toString();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Reply " + index + " of " + count);
+        }
+    }
+}
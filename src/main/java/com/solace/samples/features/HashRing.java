@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: HashRing
+ */
+
+package com.solace.samples.features;
+
+import java.util.Arrays;
+
+/**
+ * Maps keys to partitions by consistent hashing, so that changing the number of partitions moves as few keys as
+ * possible.
+ *
+ * Every partition owns {@code virtualNodes} points on a ring of 64-bit hashes, and a key belongs to the partition of
+ * the first point at or after its hash. A point depends only on its partition and its number, not on the partition
+ * count, so going from N to N+1 partitions only moves the keys taken over by the new partition's points, about 1/(N+1)
+ * of them, and going back moves only those. More virtual nodes spread the keys more evenly.
+ */
+public final class HashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final int partitions;
+    private final long[] points;
+    private final int[] owners;
+
+    public HashRing(int partitions) {
+        this(partitions, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(int partitions, int virtualNodes) {
+        if (partitions < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one partition and one virtual node");
+        }
+        this.partitions = partitions;
+        int count = partitions * virtualNodes;
+        long[] unsorted = new long[count];
+        for (int p = 0; p < partitions; p++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                unsorted[p * virtualNodes + v] = mix(((long) p << 32) | v);
+            }
+        }
+        // Sort the points and carry their owners along
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(unsorted[a], unsorted[b]));
+        points = new long[count];
+        owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = unsorted[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    public int getPartitionCount() {
+        return partitions;
+    }
+
+    /**
+     * @return the partition of {@code key}, from 0 to the partition count - 1
+     */
+    public int partition(CharSequence key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Estimates the share of keys that belong to a different partition in {@code other}, from a sample of keys.
+     */
+    public double movedShare(HashRing other, int samples) {
+        int moved = 0;
+        for (int i = 0; i < samples; i++) {
+            String key = "key-" + i;
+            if (partition(key) != other.partition(key)) {
+                moved++;
+            }
+        }
+        return (double) moved / samples;
+    }
+
+    private static long hash(CharSequence key) {
+        // 64-bit FNV-1a
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        // Finalizer of MurmurHash3
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
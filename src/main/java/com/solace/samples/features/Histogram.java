@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: Histogram
+ */
+
+package com.solace.samples.features;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, HDR-style histogram of non-negative long values (typically latencies in nanoseconds).
+ *
+ * Values below 128 are counted exactly, larger values go into log-linear buckets with 64 sub-buckets per power of
+ * two, so any recorded value is reported within 1.6% of its real value. All buckets are allocated up front and
+ * recording is a couple of atomic increments, so it can be called concurrently from any thread without allocating.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS; // 64
+    private static final int LINEAR_LIMIT = SUB_BUCKET_HALF << 1; // 128
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a single value. Negative values are recorded as zero.
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+        long max;
+        while (value > (max = maxValue.get())) {
+            if (maxValue.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0.0 : (double) totalSum.get() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage (0.0 to 100.0) of the recorded values fall, or zero if
+     * nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Adds all values recorded in this histogram to {@code target} and resets this histogram. Used to take interval
+     * snapshots while other threads keep recording; values recorded during the drain land in either interval.
+     */
+    public void drainTo(Histogram target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.getAndSet(i, 0);
+            if (c != 0) {
+                target.counts.addAndGet(i, c);
+            }
+        }
+        target.totalCount.addAndGet(totalCount.getAndSet(0));
+        target.totalSum.addAndGet(totalSum.getAndSet(0));
+        long max = maxValue.getAndSet(0);
+        long targetMax;
+        while (max > (targetMax = target.maxValue.get())) {
+            if (target.maxValue.compareAndSet(targetMax, max)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Adds all values recorded in {@code other} to this histogram, leaving {@code other} untouched.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+        long max = other.maxValue.get();
+        long current;
+        while (max > (current = maxValue.get())) {
+            if (maxValue.compareAndSet(current, max)) {
+                break;
+            }
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+
+    /**
+     * Formats the usual percentiles of the recorded values divided by {@code scale}, e.g. 1000.0 to print
+     * nanosecond values in microseconds.
+     */
+    public String summary(double scale) {
+        return String.format("p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                getValueAtPercentile(50.0) / scale, getValueAtPercentile(90.0) / scale,
+                getValueAtPercentile(99.0) / scale, getValueAtPercentile(99.9) / scale, getMaxValue() / scale);
+    }
+
+    /**
+     * Writes the distribution of the recorded values divided by {@code scale} in the text format of HdrHistogram's
+     * {@code outputPercentileDistribution}, so that runs can be plotted and compared with the usual HdrHistogram
+     * tools.
+     */
+    public void outputPercentileDistribution(PrintStream out, double scale) {
+        out.println("       Value     Percentile TotalCount 1/(1-Percentile)");
+        out.println();
+        long count = totalCount.get();
+        long max = maxValue.get();
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && seen < count; i++) {
+            long c = counts.get(i);
+            if (c == 0) {
+                continue;
+            }
+            seen += c;
+            double percentile = (double) seen / count;
+            double value = Math.min(highestEquivalentValue(i), max) / scale;
+            if (seen < count) {
+                out.printf(Locale.ROOT, "%12.3f %14.12f %10d %14.2f%n", value, percentile, seen, 1 / (1 - percentile));
+            } else {
+                out.printf(Locale.ROOT, "%12.3f %14.12f %10d%n", value, percentile, seen);
+            }
+        }
+        out.printf(Locale.ROOT, "#[Mean    = %12.3f, Max = %12.3f]%n", getMean() / scale, max / scale);
+        out.printf(Locale.ROOT, "#[Total count    = %12d]%n", count);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: HistogramLogWriter
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes latency logs that can be compared between runs: a CSV file with one line of percentiles per reporting
+ * interval, and a text file with the percentile distribution of the whole run in the format of HdrHistogram's
+ * {@code outputPercentileDistribution}. Neither is an HdrHistogram interval log, which holds the compressed
+ * histograms themselves.
+ */
+public class HistogramLogWriter implements AutoCloseable {
+
+    private final PrintStream out;
+    private final File distributionFile;
+    private final String title;
+    private final double scale;
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * @param intervalFile     the CSV file for the intervals, created now
+     * @param distributionFile the text file for the distribution of the whole run, created when it is written
+     * @param scale            divisor applied to recorded values, e.g. 1000.0 to log nanosecond values in
+     *                         microseconds
+     */
+    public HistogramLogWriter(File intervalFile, File distributionFile, String title, double scale)
+            throws IOException {
+        this.out = new PrintStream(new FileOutputStream(intervalFile), false, "UTF-8");
+        this.distributionFile = distributionFile;
+        this.title = title;
+        this.scale = scale;
+        out.printf("#%s, started %s%n", title, new Date(startMillis));
+        out.println("#ElapsedSeconds,Count,Mean,P50,P90,P99,P99.9,P99.99,Max");
+    }
+
+    public void writeInterval(Histogram interval) {
+        out.printf(Locale.ROOT, "%.3f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                (System.currentTimeMillis() - startMillis) / 1000.0, interval.getTotalCount(),
+                interval.getMean() / scale, interval.getValueAtPercentile(50.0) / scale,
+                interval.getValueAtPercentile(90.0) / scale, interval.getValueAtPercentile(99.0) / scale,
+                interval.getValueAtPercentile(99.9) / scale, interval.getValueAtPercentile(99.99) / scale,
+                interval.getMaxValue() / scale);
+    }
+
+    /**
+     * Writes the distribution of the whole run to the distribution file.
+     */
+    public void writeDistribution(Histogram total) throws IOException {
+        try (PrintStream distribution = new PrintStream(new FileOutputStream(distributionFile), false, "UTF-8")) {
+            distribution.printf("#%s, started %s%n", title, new Date(startMillis));
+            total.outputPercentileDistribution(distribution, scale);
+        }
+    }
+
+    @Override
+    public void close() {
+        out.close();
+    }
+}
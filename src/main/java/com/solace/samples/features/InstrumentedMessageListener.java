@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: InstrumentedMessageListener
+ */
+
+package com.solace.samples.features;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+/**
+ * Records the calls of a {@link MessageListener} in {@link ClientMetrics}.
+ */
+class InstrumentedMessageListener implements MessageListener {
+
+    private final MessageListener delegate;
+    private final ClientMetrics metrics;
+
+    InstrumentedMessageListener(MessageListener delegate, ClientMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        long start = System.nanoTime();
+        try {
+            delegate.onMessage(message);
+        } catch (RuntimeException ex) {
+            metrics.onMessageFailed.increment();
+            throw ex;
+        } finally {
+            metrics.onMessage.stop(start);
+        }
+    }
+}
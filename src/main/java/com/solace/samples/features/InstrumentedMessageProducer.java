@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: InstrumentedMessageProducer
+ */
+
+package com.solace.samples.features;
+
+import javax.jms.CompletionListener;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+/**
+ * Records the sends of a {@link MessageProducer} in {@link ClientMetrics}.
+ *
+ * A blocking send is timed until it returns, an asynchronous send until its completion callback. Recording itself
+ * does not allocate; only an asynchronous send needs a small wrapper around its {@link CompletionListener} to carry
+ * its start time.
+ */
+class InstrumentedMessageProducer implements MessageProducer {
+
+    private final MessageProducer delegate;
+    private final ClientMetrics metrics;
+
+    InstrumentedMessageProducer(MessageProducer delegate, ClientMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void send(Message message) throws JMSException {
+        long start = System.nanoTime();
+        try {
+            delegate.send(message);
+        } catch (JMSException | RuntimeException ex) {
+            metrics.sendFailed.increment();
+            throw ex;
+        }
+        metrics.send.stop(start);
+    }
+
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        long start = System.nanoTime();
+        try {
+            delegate.send(message, deliveryMode, priority, timeToLive);
+        } catch (JMSException | RuntimeException ex) {
+            metrics.sendFailed.increment();
+            throw ex;
+        }
+        metrics.send.stop(start);
+    }
+
+    @Override
+    public void send(Destination destination, Message message) throws JMSException {
+        long start = System.nanoTime();
+        try {
+            delegate.send(destination, message);
+        } catch (JMSException | RuntimeException ex) {
+            metrics.sendFailed.increment();
+            throw ex;
+        }
+        metrics.send.stop(start);
+    }
+
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive)
+            throws JMSException {
+        long start = System.nanoTime();
+        try {
+            delegate.send(destination, message, deliveryMode, priority, timeToLive);
+        } catch (JMSException | RuntimeException ex) {
+            metrics.sendFailed.increment();
+            throw ex;
+        }
+        metrics.send.stop(start);
+    }
+
+    @Override
+    public void send(Message message, CompletionListener completionListener) throws JMSException {
+        TimedCompletion completion = startAsync(completionListener);
+        try {
+            delegate.send(message, completion);
+        } catch (JMSException | RuntimeException ex) {
+            completion.failedToSend();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long timeToLive,
+            CompletionListener completionListener) throws JMSException {
+        TimedCompletion completion = startAsync(completionListener);
+        try {
+            delegate.send(message, deliveryMode, priority, timeToLive, completion);
+        } catch (JMSException | RuntimeException ex) {
+            completion.failedToSend();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void send(Destination destination, Message message, CompletionListener completionListener)
+            throws JMSException {
+        TimedCompletion completion = startAsync(completionListener);
+        try {
+            delegate.send(destination, message, completion);
+        } catch (JMSException | RuntimeException ex) {
+            completion.failedToSend();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+            CompletionListener completionListener) throws JMSException {
+        TimedCompletion completion = startAsync(completionListener);
+        try {
+            delegate.send(destination, message, deliveryMode, priority, timeToLive, completion);
+        } catch (JMSException | RuntimeException ex) {
+            completion.failedToSend();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void setDisableMessageID(boolean value) throws JMSException {
+        delegate.setDisableMessageID(value);
+    }
+
+    @Override
+    public boolean getDisableMessageID() throws JMSException {
+        return delegate.getDisableMessageID();
+    }
+
+    @Override
+    public void setDisableMessageTimestamp(boolean value) throws JMSException {
+        delegate.setDisableMessageTimestamp(value);
+    }
+
+    @Override
+    public boolean getDisableMessageTimestamp() throws JMSException {
+        return delegate.getDisableMessageTimestamp();
+    }
+
+    @Override
+    public void setDeliveryMode(int deliveryMode) throws JMSException {
+        delegate.setDeliveryMode(deliveryMode);
+    }
+
+    @Override
+    public int getDeliveryMode() throws JMSException {
+        return delegate.getDeliveryMode();
+    }
+
+    @Override
+    public void setPriority(int defaultPriority) throws JMSException {
+        delegate.setPriority(defaultPriority);
+    }
+
+    @Override
+    public int getPriority() throws JMSException {
+        return delegate.getPriority();
+    }
+
+    @Override
+    public void setTimeToLive(long timeToLive) throws JMSException {
+        delegate.setTimeToLive(timeToLive);
+    }
+
+    @Override
+    public long getTimeToLive() throws JMSException {
+        return delegate.getTimeToLive();
+    }
+
+    @Override
+    public void setDeliveryDelay(long deliveryDelay) throws JMSException {
+        delegate.setDeliveryDelay(deliveryDelay);
+    }
+
+    @Override
+    public long getDeliveryDelay() throws JMSException {
+        return delegate.getDeliveryDelay();
+    }
+
+    @Override
+    public Destination getDestination() throws JMSException {
+        return delegate.getDestination();
+    }
+
+    @Override
+    public void close() throws JMSException {
+        delegate.close();
+    }
+
+    private TimedCompletion startAsync(CompletionListener completionListener) {
+        metrics.sendInFlight.increment();
+        return new TimedCompletion(completionListener, System.nanoTime());
+    }
+
+    private class TimedCompletion implements CompletionListener {
+        private final CompletionListener delegate;
+        private final long startNanos;
+
+        TimedCompletion(CompletionListener delegate, long startNanos) {
+            this.delegate = delegate;
+            this.startNanos = startNanos;
+        }
+
+        void failedToSend() {
+            metrics.sendInFlight.decrement();
+            metrics.sendFailed.increment();
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            metrics.sendInFlight.decrement();
+            metrics.send.stop(startNanos);
+            delegate.onCompletion(message);
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            failedToSend();
+            delegate.onException(message, exception);
+        }
+    }
+}
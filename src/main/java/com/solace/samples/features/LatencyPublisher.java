@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: LatencyPublisher
+ */
+
+package com.solace.samples.features;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+/**
+ * Publishes messages at a fixed rate, stamping each with a sequence number and with the times it was meant to be and
+ * actually was sent, for a {@link LatencyRecorder} to measure one-way latency and detect lost or reordered messages.
+ */
+public class LatencyPublisher {
+
+    public static final String SEQUENCE_PROPERTY = "LatencySequence";
+    public static final String INTENDED_SEND_PROPERTY = "LatencyIntendedSendNanos";
+    public static final String SEND_PROPERTY = "LatencySendNanos";
+
+    private final Connection connection;
+    private final Destination destination;
+    private final int messagesPerSecond;
+    private final int durationSeconds;
+    private final int payloadSize;
+
+    public LatencyPublisher(Connection connection, Destination destination, int messagesPerSecond,
+            int durationSeconds, int payloadSize) {
+        this.connection = connection;
+        this.destination = destination;
+        this.messagesPerSecond = messagesPerSecond;
+        this.durationSeconds = durationSeconds;
+        this.payloadSize = payloadSize;
+    }
+
+    /**
+     * Publishes for the configured duration on the calling thread.
+     *
+     * @return the number of messages sent
+     */
+    public long run() throws JMSException {
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(destination);
+        RateLimiter limiter = new RateLimiter(messagesPerSecond);
+        long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long sequence = 0;
+        long intended;
+        while ((intended = limiter.acquire()) - endNanos < 0) {
+            TextMessage message = session.createTextMessage(payload);
+            message.setLongProperty(SEQUENCE_PROPERTY, sequence++);
+            message.setLongProperty(INTENDED_SEND_PROPERTY, EpochClock.fromNanoTime(intended));
+            message.setLongProperty(SEND_PROPERTY, EpochClock.nanos());
+            producer.send(message, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                    Message.DEFAULT_TIME_TO_LIVE);
+        }
+        producer.close();
+        session.close();
+        return sequence;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: LatencyRecorder
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+/**
+ * Records the one-way latency of messages stamped by a {@link LatencyPublisher} and checks their sequence numbers
+ * for gaps and reordering, printing and logging the results every second.
+ *
+ * Publisher and recorder must run on the same host, or on hosts with closely synchronized clocks.
+ */
+public class LatencyRecorder implements MessageListener, AutoCloseable {
+
+    private final LatencyReport report;
+    private final SequenceTracker sequences = new SequenceTracker();
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * @param logDirectory directory for the latency logs, or null to only print the results
+     */
+    public LatencyRecorder(String name, File logDirectory) throws IOException {
+        this.report = new LatencyReport(name, logDirectory);
+        reporter.scheduleAtFixedRate(() -> {
+            String latency = report.interval();
+            synchronized (sequences) {
+                System.out.printf("%s, received %d, missing %d, reordered %d, duplicates %d%n", latency,
+                        sequences.getReceived(), sequences.getMissing(), sequences.getReordered(),
+                        sequences.getDuplicates());
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        long receivedNanos = EpochClock.nanos();
+        try {
+            if (!message.propertyExists(LatencyPublisher.SEQUENCE_PROPERTY)) {
+                return;
+            }
+            report.record(message.getLongProperty(LatencyPublisher.INTENDED_SEND_PROPERTY),
+                    message.getLongProperty(LatencyPublisher.SEND_PROPERTY), receivedNanos);
+            synchronized (sequences) {
+                sequences.track(message.getLongProperty(LatencyPublisher.SEQUENCE_PROPERTY));
+            }
+        } catch (JMSException ex) {
+            System.out.println("Error processing incoming message.");
+            ex.printStackTrace();
+        }
+    }
+
+    public long getReceived() {
+        synchronized (sequences) {
+            return sequences.getReceived();
+        }
+    }
+
+    @Override
+    public void close() {
+        reporter.shutdown();
+        try {
+            reporter.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        report.close();
+        synchronized (sequences) {
+            System.out.printf("Received %d, missing %d, reordered %d, duplicates %d%n", sequences.getReceived(),
+                    sequences.getMissing(), sequences.getReordered(), sequences.getDuplicates());
+        }
+    }
+}
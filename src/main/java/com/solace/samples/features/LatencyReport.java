@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: LatencyReport
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Collects the latencies of one measurement, both corrected and uncorrected for coordinated omission, and logs them
+ * per interval and for the whole run.
+ *
+ * The corrected latency is measured from the time a message was meant to be sent according to the publisher's fixed
+ * schedule, so a stall on the sending side shows up in the latency of every message held back by it instead of
+ * only in the one message that was stalled. The uncorrected latency is measured from the time the message was
+ * actually sent.
+ */
+public class LatencyReport implements AutoCloseable {
+
+    private final String name;
+    private final Histogram corrected = new Histogram();
+    private final Histogram uncorrected = new Histogram();
+    private final Histogram intervalCorrected = new Histogram();
+    private final Histogram intervalUncorrected = new Histogram();
+    private final Histogram totalCorrected = new Histogram();
+    private final Histogram totalUncorrected = new Histogram();
+    private final HistogramLogWriter correctedLog;
+    private final HistogramLogWriter uncorrectedLog;
+
+    /**
+     * @param logDirectory directory to write the per-interval percentiles to, as {@code <name>-corrected.csv} and
+     *                     {@code <name>-uncorrected.csv}, and the distributions of the whole run, as
+     *                     {@code <name>-corrected.txt} and {@code <name>-uncorrected.txt}, or null to only print the
+     *                     results
+     */
+    public LatencyReport(String name, File logDirectory) throws IOException {
+        this.name = name;
+        if (logDirectory != null) {
+            logDirectory.mkdirs();
+            this.correctedLog = new HistogramLogWriter(new File(logDirectory, name + "-corrected.csv"),
+                    new File(logDirectory, name + "-corrected.txt"),
+                    name + " latency in microseconds, corrected for coordinated omission", 1000.0);
+            this.uncorrectedLog = new HistogramLogWriter(new File(logDirectory, name + "-uncorrected.csv"),
+                    new File(logDirectory, name + "-uncorrected.txt"), name + " latency in microseconds", 1000.0);
+        } else {
+            this.correctedLog = null;
+            this.uncorrectedLog = null;
+        }
+    }
+
+    /**
+     * Records one message. All times are in nanoseconds since the epoch, see {@link EpochClock}.
+     */
+    public void record(long intendedNanos, long sentNanos, long receivedNanos) {
+        corrected.recordValue(receivedNanos - intendedNanos);
+        uncorrected.recordValue(receivedNanos - sentNanos);
+    }
+
+    /**
+     * Ends the current interval, logs it and returns its summary.
+     */
+    public String interval() {
+        intervalCorrected.reset();
+        intervalUncorrected.reset();
+        corrected.drainTo(intervalCorrected);
+        uncorrected.drainTo(intervalUncorrected);
+        totalCorrected.add(intervalCorrected);
+        totalUncorrected.add(intervalUncorrected);
+        if (correctedLog != null) {
+            correctedLog.writeInterval(intervalCorrected);
+            uncorrectedLog.writeInterval(intervalUncorrected);
+        }
+        return String.format("%s latency(us) %s (uncorrected %s)", name, intervalCorrected.summary(1000.0),
+                intervalUncorrected.summary(1000.0));
+    }
+
+    /**
+     * Prints the latencies of the whole run and completes the logs.
+     */
+    @Override
+    public void close() {
+        interval();
+        System.out.printf("%s: %d messages, latency(us) %s%n", name, totalCorrected.getTotalCount(),
+                totalCorrected.summary(1000.0));
+        System.out.printf("%s: uncorrected latency(us) %s%n", name, totalUncorrected.summary(1000.0));
+        if (correctedLog != null) {
+            try {
+                correctedLog.writeDistribution(totalCorrected);
+                uncorrectedLog.writeDistribution(totalUncorrected);
+            } catch (IOException ex) {
+                System.out.println("Error writing the latency distributions.");
+                ex.printStackTrace();
+            } finally {
+                correctedLog.close();
+                uncorrectedLog.close();
+            }
+        }
+    }
+}
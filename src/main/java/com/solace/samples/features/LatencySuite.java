@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: LatencySuite
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+
+/**
+ * Measures publish-to-receive and request-to-reply latency against an in-process {@link LocalBroker}, so that runs
+ * can be compared offline, e.g. before and after a change.
+ *
+ * The one-way run pairs a {@link LatencyPublisher} with a {@link LatencyRecorder} on the TopicPublisher and
+ * TopicSubscriber topic; the round-trip run pairs a {@link RoundTripProbe} with a {@link ReplierService} on the
+ * BasicRequestor and BasicReplier topic. Each end uses its own connection, as separate processes would.
+ */
+public class LatencySuite {
+
+    final String TOPIC_NAME = "T/GettingStarted/pubsub";
+    final String REQUEST_TOPIC_NAME = "T/GettingStarted/requests";
+
+    private void run(String... args) throws Exception {
+        int messagesPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int durationSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int payloadSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        File logDirectory = args.length > 3 ? new File(args[3]) : null;
+
+        LocalBroker broker = new LocalBroker(LocalBroker.DEFAULT_PORT);
+        broker.start();
+        System.out.printf("LatencySuite is using the local broker at %s...%n", broker.getUrl());
+        ConnectionFactory connectionFactory = new JmsConnectionFactory("latency", "latency", broker.getUrl());
+        try {
+            runOneWay(connectionFactory, messagesPerSecond, durationSeconds, payloadSize, logDirectory);
+            runRoundTrip(connectionFactory, messagesPerSecond, durationSeconds, payloadSize, logDirectory);
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private void runOneWay(ConnectionFactory connectionFactory, int messagesPerSecond, int durationSeconds,
+            int payloadSize, File logDirectory) throws Exception {
+        System.out.printf("Measuring one-way latency at %d msgs/s for %d seconds...%n", messagesPerSecond,
+                durationSeconds);
+        Connection subscriberConnection = connectionFactory.createConnection();
+        Session subscriberSession = subscriberConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = subscriberSession.createTopic(TOPIC_NAME);
+        MessageConsumer subscriber = subscriberSession.createConsumer(topic);
+        LatencyRecorder recorder = new LatencyRecorder("one-way", logDirectory);
+        subscriber.setMessageListener(recorder);
+        subscriberConnection.start();
+
+        Connection publisherConnection = connectionFactory.createConnection();
+        long sent = new LatencyPublisher(publisherConnection, topic, messagesPerSecond, durationSeconds,
+                payloadSize).run();
+        publisherConnection.close();
+
+        // Give the last messages time to arrive
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.getReceived() < sent && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        subscriberConnection.close();
+        recorder.close();
+        System.out.printf("Sent %d, not received %d%n", sent, sent - recorder.getReceived());
+    }
+
+    private void runRoundTrip(ConnectionFactory connectionFactory, int requestsPerSecond, int durationSeconds,
+            int payloadSize, File logDirectory) throws Exception {
+        System.out.printf("Measuring round-trip latency at %d requests/s for %d seconds...%n", requestsPerSecond,
+                durationSeconds);
+        Connection replierConnection = connectionFactory.createConnection();
+        Session replierSession = replierConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic requestTopic = replierSession.createTopic(REQUEST_TOPIC_NAME);
+        int workers = Runtime.getRuntime().availableProcessors();
+        ReplierService replier = new ReplierService(replierConnection, requestTopic, workers, false,
+                (request, reply) -> reply.setText("Sample response"));
+        replierConnection.start();
+
+        Connection requestorConnection = connectionFactory.createConnection();
+        AsyncRequestor requestor = new AsyncRequestor(requestorConnection, requestTopic);
+        requestorConnection.start();
+        new RoundTripProbe(requestor, requestsPerSecond, durationSeconds, payloadSize, logDirectory).run();
+
+        requestor.close();
+        requestorConnection.close();
+        replierConnection.stop();
+        replier.close();
+        replierConnection.close();
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length > 0 && !Character.isDigit(args[0].charAt(0))) {
+            System.out.println("Usage: LatencySuite [<msgs_per_sec> <duration_sec> <payload_bytes> <log_dir>]");
+            System.exit(-1);
+        }
+        new LatencySuite().run(args);
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: LoadGenerator
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.CompletionListener;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+/**
+ * Publishes to a destination at a sustained target rate for a fixed duration and reports the achieved throughput
+ * and send-completion latency once per second.
+ *
+ * Every publisher thread gets its own session and producer (JMS sessions are single-threaded) and sends
+ * asynchronously with a {@link CompletionListener}, so the send rate is not bounded by the round trip to the broker.
+ * The number of sends awaiting completion per thread is capped to keep memory bounded when the broker falls behind.
+ * Payloads are sent as text by default, or as bytes through {@link BytesPayloads}, optionally compressed.
+ *
+ * Latency is measured from the time each send was due according to the target rate, so a sender stalled by the
+ * in-flight cap or a slow send shows up in the latency of every message it held back. The latency from the actual
+ * send is reported alongside as uncorrected, as in {@link LatencyReport}.
+ */
+public class LoadGenerator {
+
+    // Maximum number of sends per thread that may await their completion callback
+    static final int MAX_IN_FLIGHT = 1000;
+
+    private final Connection connection;
+    private final Destination destination;
+    private final int messagesPerSecond;
+    private final int durationSeconds;
+    private final int payloadSize;
+    private final int threads;
+    private boolean binaryPayload;
+    private PayloadCompressor compressor;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Histogram intervalLatency = new Histogram();
+    private final Histogram totalLatency = new Histogram();
+    private final Histogram intervalUncorrected = new Histogram();
+    private final Histogram totalUncorrected = new Histogram();
+
+    public LoadGenerator(Connection connection, Destination destination, int messagesPerSecond, int durationSeconds,
+            int payloadSize, int threads) {
+        this.connection = connection;
+        this.destination = destination;
+        this.messagesPerSecond = messagesPerSecond;
+        this.durationSeconds = durationSeconds;
+        this.payloadSize = payloadSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Sends the payload in a {@link javax.jms.BytesMessage} instead of a {@link TextMessage}.
+     */
+    public void setBinaryPayload(boolean binaryPayload) {
+        this.binaryPayload = binaryPayload;
+    }
+
+    /**
+     * Sends the payload in a {@link javax.jms.BytesMessage}, compressed by {@code compressor}.
+     */
+    public void setCompressor(PayloadCompressor compressor) {
+        this.compressor = compressor;
+        this.binaryPayload = compressor != null;
+    }
+
+    public void run() throws Exception {
+        System.out.printf("Publishing %d msgs/s of %d %s bytes with %d thread(s) for %d seconds...%n",
+                messagesPerSecond, payloadSize, compressor != null ? compressor.getCodec().getName()
+                        : binaryPayload ? "binary" : "text", threads, durationSeconds);
+
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+        long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(new Runnable() {
+            private final Histogram interval = new Histogram();
+            private final Histogram uncorrected = new Histogram();
+            private long lastSent;
+            private long lastCompleted;
+
+            @Override
+            public void run() {
+                long sentNow = sent.sum();
+                long completedNow = completed.sum();
+                interval.reset();
+                intervalLatency.drainTo(interval);
+                totalLatency.add(interval);
+                uncorrected.reset();
+                intervalUncorrected.drainTo(uncorrected);
+                totalUncorrected.add(uncorrected);
+                System.out.printf("sent %d msgs/s, completed %d msgs/s, failed %d, latency(us) %s (uncorrected %s)%n",
+                        sentNow - lastSent, completedNow - lastCompleted, failed.sum(), interval.summary(1000.0),
+                        uncorrected.summary(1000.0));
+                lastSent = sentNow;
+                lastCompleted = completedNow;
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+
+        List<Thread> publishers = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread publisher = new Thread(() -> {
+                try {
+                    publish(payload, (double) messagesPerSecond / threads, endNanos);
+                } catch (Exception ex) {
+                    synchronized (errors) {
+                        errors.add(ex);
+                    }
+                }
+            }, "publisher-" + i);
+            publishers.add(publisher);
+            publisher.start();
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        reporter.shutdown();
+        reporter.awaitTermination(2, TimeUnit.SECONDS);
+        intervalLatency.drainTo(totalLatency);
+        intervalUncorrected.drainTo(totalUncorrected);
+
+        System.out.printf("Sent %d, completed %d, failed %d: %.0f msgs/s, latency(us) %s%n", sent.sum(),
+                completed.sum(), failed.sum(), (double) completed.sum() / durationSeconds,
+                totalLatency.summary(1000.0));
+        System.out.printf("Uncorrected latency(us) %s%n", totalUncorrected.summary(1000.0));
+        if (compressor != null) {
+            System.out.println(compressor.summary());
+        }
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+    }
+
+    private void publish(String payload, double rate, long endNanos) throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(destination);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        RateLimiter limiter = new RateLimiter(rate);
+        byte[] bytes = new byte[payloadSize];
+        Arrays.fill(bytes, (byte) 'x');
+        BytesPayloads.PayloadWriter writer = buffer -> buffer.put(bytes);
+
+        long intendedNanos;
+        while ((intendedNanos = limiter.acquire()) - endNanos < 0) {
+            inFlight.acquire();
+            Message message = compressor != null ? compressor.createMessage(session, writer)
+                    : binaryPayload ? BytesPayloads.createMessage(session, writer)
+                    : session.createTextMessage(payload);
+            producer.send(message, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                    Message.DEFAULT_TIME_TO_LIVE, new SendCompletion(inFlight, intendedNanos, System.nanoTime()));
+            sent.increment();
+        }
+
+        // Wait for the outstanding sends to complete before closing the session
+        if (!inFlight.tryAcquire(MAX_IN_FLIGHT, 10, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for outstanding sends to complete.");
+        }
+        producer.close();
+        session.close();
+    }
+
+    private class SendCompletion implements CompletionListener {
+        private final Semaphore inFlight;
+        private final long intendedNanos;
+        private final long sentNanos;
+
+        SendCompletion(Semaphore inFlight, long intendedNanos, long sentNanos) {
+            this.inFlight = inFlight;
+            this.intendedNanos = intendedNanos;
+            this.sentNanos = sentNanos;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            long now = System.nanoTime();
+            intervalLatency.recordValue(now - intendedNanos);
+            intervalUncorrected.recordValue(now - sentNanos);
+            completed.increment();
+            inFlight.release();
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            failed.increment();
+            inFlight.release();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: LocalBroker
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.WildcardConfiguration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+
+/**
+ * An in-process AMQP 1.0 broker standing in for Solace messaging, so that the samples and benchmarks can run offline.
+ *
+ * This embeds an Apache ActiveMQ Artemis broker with an AMQP acceptor on the loopback interface. Security is
+ * disabled, so any username and password are accepted, and queues and topics are created on first use. Topic
+ * wildcards follow the Solace syntax: levels are separated by '/', '*' matches one level and '>' matches the remaining
+ * levels. Solace's prefix wildcards such as {@code a/b*} are not supported.
+ *
+ * Without a data directory nothing is persisted, so queued messages are lost when the broker stops.
+ */
+public class LocalBroker {
+
+    public static final int DEFAULT_PORT = 5672;
+
+    private final int port;
+    private final File dataDirectory;
+    private EmbeddedActiveMQ broker;
+
+    public LocalBroker(int port) {
+        this(port, null);
+    }
+
+    /**
+     * @param dataDirectory directory to persist messages in, so that they survive a restart, or null
+     */
+    public LocalBroker(int port, File dataDirectory) {
+        this.port = port;
+        this.dataDirectory = dataDirectory;
+    }
+
+    /**
+     * @return the URL to pass to the samples, e.g. amqp://127.0.0.1:5672
+     */
+    public String getUrl() {
+        return "amqp://127.0.0.1:" + port;
+    }
+
+    /**
+     * Starts the broker, or restarts it after {@link #stop()}.
+     */
+    public synchronized void start() throws Exception {
+        if (broker != null) {
+            return;
+        }
+        WildcardConfiguration wildcards = new WildcardConfiguration();
+        wildcards.setDelimiter('/');
+        wildcards.setSingleWord('*');
+        wildcards.setAnyWords('>');
+
+        Configuration configuration = new ConfigurationImpl();
+        configuration.setName("local-broker-" + port);
+        configuration.setSecurityEnabled(false);
+        configuration.setWildCardConfiguration(wildcards);
+        configuration.addAcceptorConfiguration("amqp", "tcp://127.0.0.1:" + port + "?protocols=AMQP");
+        if (dataDirectory != null) {
+            configuration.setPersistenceEnabled(true);
+            configuration.setJournalDirectory(new File(dataDirectory, "journal").getPath());
+            configuration.setBindingsDirectory(new File(dataDirectory, "bindings").getPath());
+            configuration.setPagingDirectory(new File(dataDirectory, "paging").getPath());
+            configuration.setLargeMessagesDirectory(new File(dataDirectory, "large-messages").getPath());
+        } else {
+            configuration.setPersistenceEnabled(false);
+        }
+
+        EmbeddedActiveMQ embedded = new EmbeddedActiveMQ();
+        embedded.setConfiguration(configuration);
+        embedded.start();
+        broker = embedded;
+    }
+
+    /**
+     * Stops the broker, dropping all client connections.
+     */
+    public synchronized void stop() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker = null;
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        File dataDirectory = args.length > 1 ? new File(args[1]) : null;
+        LocalBroker broker = new LocalBroker(port, dataDirectory);
+        broker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                broker.stop();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+        System.out.printf("Local broker is listening at %s, press Ctrl-C to exit...%n", broker.getUrl());
+        new CountDownLatch(1).await();
+    }
+}
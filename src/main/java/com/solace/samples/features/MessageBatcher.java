@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: MessageBatcher
+ */
+
+package com.solace.samples.features;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Packs many small messages into one {@link BytesMessage}, so that AMQP framing, settlement and acknowledgement are
+ * paid once per batch instead of once per message.
+ *
+ * A batch is sent when it holds N messages or B bytes, or once its oldest message is T milliseconds old, whichever
+ * comes first. The envelope body holds every message payload prefixed by its length as a 4-byte int, and the
+ * {@value #BATCH_COUNT_PROPERTY} property holds the number of messages, which marks the message as a batch for
+ * {@link #isBatch} and {@link #unpack} on the receiving side. Properties of the individual messages are not kept.
+ *
+ * The batcher may be used from several threads; sends are serialized on the session, which must not be used for
+ * anything else in the meantime. A batch whose send fails is dropped as a whole and the exception thrown.
+ */
+public class MessageBatcher implements AutoCloseable {
+
+    // Number of messages in a batch, present only on batches
+    public static final String BATCH_COUNT_PROPERTY = "BatchCount";
+
+    /**
+     * Receives the payloads of an unpacked batch.
+     */
+    @FunctionalInterface
+    public interface PayloadHandler {
+        /**
+         * Called with a view of a single payload, which is only valid during the call.
+         */
+        void onPayload(ByteBuffer payload) throws JMSException;
+    }
+
+    private final Session session;
+    private final MessageProducer producer;
+    private final int maxMessages;
+    private final int maxBytes;
+    private final long lingerNanos;
+    private final ScheduledFuture<?> timer;
+
+    private ByteBuffer buffer;
+    private int count;
+    private long oldestNanos;
+
+    private final Histogram batchSizes = new Histogram();
+    private final long startNanos = System.nanoTime();
+    private long messages;
+    private long batches;
+
+    /**
+     * @param scheduler    used to send batches that have waited {@code lingerMillis} without filling up
+     * @param maxMessages  number of messages that fill a batch
+     * @param maxBytes     number of bytes, including length prefixes, that fill a batch
+     */
+    public MessageBatcher(Session session, MessageProducer producer, ScheduledExecutorService scheduler,
+            int maxMessages, int maxBytes, long lingerMillis) {
+        this.session = session;
+        this.producer = producer;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.buffer = ByteBuffer.allocate(Math.min(maxBytes, 64 * 1024));
+        this.timer = scheduler.scheduleAtFixedRate(this::flushIfDue, lingerMillis, Math.max(1, lingerMillis / 2),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void add(byte[] payload) throws JMSException {
+        add(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Adds the remaining bytes of {@code payload} to the current batch, sending the batch if that fills it. A payload
+     * larger than the byte limit is sent in a batch of its own.
+     */
+    public synchronized void add(ByteBuffer payload) throws JMSException {
+        int length = payload.remaining();
+        if (count > 0 && buffer.position() + 4 + length > maxBytes) {
+            flush();
+        }
+        if (buffer.remaining() < 4 + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.position() + 4 + length, buffer.capacity() * 2));
+            buffer.flip();
+            buffer = grown.put(buffer);
+        }
+        if (count == 0) {
+            oldestNanos = System.nanoTime();
+        }
+        buffer.putInt(length).put(payload.duplicate());
+        count++;
+        if (count >= maxMessages || buffer.position() >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the current batch now.
+     */
+    public synchronized void flush() throws JMSException {
+        if (count == 0) {
+            return;
+        }
+        try {
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(buffer.array(), 0, buffer.position());
+            message.setIntProperty(BATCH_COUNT_PROPERTY, count);
+            producer.send(message);
+            batchSizes.recordValue(count);
+            messages += count;
+            batches++;
+        } finally {
+            buffer.clear();
+            count = 0;
+        }
+    }
+
+    /**
+     * Sends the current batch and stops the linger timer.
+     */
+    @Override
+    public void close() throws JMSException {
+        timer.cancel(false);
+        flush();
+    }
+
+    /**
+     * @return the distribution of the number of messages per batch sent
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public synchronized String summary() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("Sent %d messages in %d batches: %.0f msgs/s, %.0f batches/s, batch size %s", messages,
+                batches, messages / seconds, batches / seconds, batchSizes.summary(1.0));
+    }
+
+    /**
+     * @return whether {@code message} is a batch sent by a {@code MessageBatcher}
+     */
+    public static boolean isBatch(Message message) throws JMSException {
+        return message instanceof BytesMessage && message.propertyExists(BATCH_COUNT_PROPERTY);
+    }
+
+    /**
+     * Passes every payload of a batch to {@code handler}, in the order they were added.
+     *
+     * @return the number of payloads
+     * @throws JMSException if the batch is corrupt, or as thrown by {@code handler}
+     */
+    public static int unpack(BytesMessage batch, PayloadHandler handler) throws JMSException {
+        int expected = batch.getIntProperty(BATCH_COUNT_PROPERTY);
+        ByteBuffer body = BytesPayloads.payload(batch);
+        int unpacked = 0;
+        while (body.remaining() >= 4) {
+            int length = body.getInt();
+            if (length < 0 || length > body.remaining()) {
+                throw new JMSException("Corrupt batch, payload #" + unpacked + " exceeds the message body");
+            }
+            ByteBuffer payload = body.slice();
+            payload.limit(length);
+            handler.onPayload(payload);
+            body.position(body.position() + length);
+            unpacked++;
+        }
+        if (unpacked != expected || body.hasRemaining()) {
+            throw new JMSException("Corrupt batch, expected " + expected + " payloads but found " + unpacked);
+        }
+        return unpacked;
+    }
+
+    private synchronized void flushIfDue() {
+        if (count > 0 && System.nanoTime() - oldestNanos >= lingerNanos) {
+            try {
+                flush();
+            } catch (JMSException ex) {
+                System.out.println("Error sending batch.");
+                ex.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: MessageSpool
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.jms.JMSException;
+
+/**
+ * A write-ahead spool of message payloads in memory-mapped segment files, read back in order by a single drainer.
+ *
+ * Every record gets the next sequence number and is written to the current segment, a file of fixed size; when a
+ * record does not fit, a new segment is started, up to {@code maxSegments}. The drainer {@link #poll} records,
+ * {@link #settle}s them once they are safely sent, which deletes segments that hold settled records only, or {@link
+ * #rewind}s to replay them after a failure. The first unsettled sequence number is kept in a checkpoint file, so after
+ * a restart the spool continues with the records that were not settled. Records are replayed at least once.
+ *
+ * The fsync policy decides when the segments and the checkpoint are forced to disk: after every change, at a fixed
+ * interval, or only when the operating system writes them back. Records that were not forced may be lost in a
+ * machine crash, but not when only the process dies. A record torn by a crash fails its CRC-32 on recovery, and it and
+ * the records after it are discarded.
+ *
+ * Segments are deleted while still mapped, which works on Linux and macOS but not on Windows.
+ */
+public class MessageSpool implements AutoCloseable {
+
+    public enum FsyncPolicy {
+        ALWAYS, INTERVAL, NEVER
+    }
+
+    /**
+     * Handles a polled record. The payload is only valid during the call.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(long sequence, ByteBuffer payload) throws JMSException;
+    }
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    // Record size, sequence number, CRC-32 of sequence number and payload, then the payload
+    static final int HEADER_SIZE = 4 + 8 + 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "settled";
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FsyncPolicy fsync;
+    private final List<Segment> segments = new ArrayList<>();
+    private final RandomAccessFile checkpointFile;
+    private final ByteBuffer checkpoint = ByteBuffer.allocate(8);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledFuture<?> syncTask;
+
+    private Segment writeSegment;
+    private long nextSequence;
+    // First unsettled record
+    private Segment settledSegment;
+    private int settledPosition;
+    private long settledSequence;
+    // Next record to poll
+    private Segment readSegment;
+    private int readPosition;
+    private long readSequence;
+
+    private boolean dirty;
+    private long appended;
+    private long syncs;
+
+    /**
+     * Opens the spool in {@code directory}, recovering the unsettled records of a previous run.
+     *
+     * @param fsyncIntervalMillis interval of the forces with {@link FsyncPolicy#INTERVAL}
+     * @param scheduler           runs the interval forces
+     */
+    public MessageSpool(File directory, int segmentSize, int maxSegments, FsyncPolicy fsync,
+            long fsyncIntervalMillis, ScheduledExecutorService scheduler) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create spool directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.fsync = fsync;
+        this.checkpointFile = new RandomAccessFile(new File(directory, CHECKPOINT_FILE), "rw");
+        recover();
+        syncTask = fsync == FsyncPolicy.INTERVAL ? scheduler.scheduleAtFixedRate(this::syncIfDirty,
+                fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS) : null;
+    }
+
+    /**
+     * Appends the remaining bytes of {@code payload}, leaving its position untouched.
+     *
+     * @return the sequence number of the record
+     * @throws IOException if the record does not fit a segment or all segments are in use
+     */
+    public synchronized long append(ByteBuffer payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.remaining();
+        if (recordSize > segmentSize) {
+            throw new IOException("Record of " + payload.remaining() + " bytes does not fit a spool segment");
+        }
+        if (writeSegment.buffer.position() + recordSize > segmentSize) {
+            roll();
+        }
+        long sequence = nextSequence;
+        MappedByteBuffer buffer = writeSegment.buffer;
+        int start = buffer.position();
+        int payloadPosition = payload.position();
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(payload);
+        payload.position(payloadPosition);
+        buffer.position(start + HEADER_SIZE);
+        buffer.put(payload);
+        payload.position(payloadPosition);
+        buffer.putLong(start + 4, sequence);
+        buffer.putInt(start + 12, (int) crc.getValue());
+        buffer.putInt(start, recordSize);
+
+        nextSequence++;
+        appended++;
+        if (fsync == FsyncPolicy.ALWAYS) {
+            buffer.force();
+            syncs++;
+        } else {
+            dirty = true;
+        }
+        notifyAll();
+        return sequence;
+    }
+
+    public long append(byte[] payload) throws IOException {
+        return append(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Hands up to {@code maxRecords} records after the last polled one to {@code handler}, waiting up to {@code
+     * timeout} for one to be appended if there are none. Only the drainer may call this.
+     *
+     * @return the number of records handled
+     */
+    public int poll(int maxRecords, long timeout, TimeUnit unit, RecordHandler handler)
+            throws JMSException, InterruptedException {
+        Segment segment;
+        int position;
+        int available;
+        synchronized (this) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long remaining;
+            while (readSequence == nextSequence && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            available = (int) Math.min(maxRecords, nextSequence - readSequence);
+            segment = readSegment;
+            position = readPosition;
+        }
+
+        // Written records do not change and their segments stay until settled, so they are read without the lock
+        for (int i = 0; i < available; i++) {
+            ByteBuffer reader = segment.reader;
+            int recordSize = position + 4 <= segmentSize ? reader.getInt(position) : 0;
+            if (recordSize == 0) {
+                synchronized (this) {
+                    segment = segments.get(segments.indexOf(segment) + 1);
+                }
+                position = 0;
+                recordSize = segment.reader.getInt(0);
+                reader = segment.reader;
+            }
+            reader.limit(position + recordSize);
+            reader.position(position + HEADER_SIZE);
+            try {
+                handler.handle(reader.getLong(position + 4), reader);
+            } finally {
+                reader.clear();
+            }
+            position += recordSize;
+        }
+
+        synchronized (this) {
+            readSegment = segment;
+            readPosition = position;
+            readSequence += available;
+        }
+        return available;
+    }
+
+    /**
+     * Marks all polled records as settled and deletes the segments holding settled records only.
+     */
+    public synchronized void settle() throws IOException {
+        settledSegment = readSegment;
+        settledPosition = readPosition;
+        settledSequence = readSequence;
+        checkpoint.clear();
+        checkpoint.putLong(0, settledSequence);
+        checkpointFile.getChannel().write(checkpoint, 0);
+        if (fsync == FsyncPolicy.ALWAYS) {
+            checkpointFile.getChannel().force(false);
+            syncs++;
+        } else {
+            dirty = true;
+        }
+        while (segments.get(0) != settledSegment) {
+            segments.remove(0).delete();
+        }
+    }
+
+    /**
+     * Makes the next poll start again at the first unsettled record.
+     */
+    public synchronized void rewind() {
+        readSegment = settledSegment;
+        readPosition = settledPosition;
+        readSequence = settledSequence;
+    }
+
+    /**
+     * Forces the segments and the checkpoint to disk.
+     */
+    public synchronized void sync() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        checkpointFile.getChannel().force(false);
+        dirty = false;
+        syncs++;
+    }
+
+    /**
+     * @return the number of records not settled yet
+     */
+    public synchronized long getBacklog() {
+        return nextSequence - settledSequence;
+    }
+
+    public synchronized String summary() {
+        return String.format("spooled %d, backlog %d records in %d segments, %d fsyncs", appended,
+                nextSequence - settledSequence, segments.size(), syncs);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+        }
+        if (fsync != FsyncPolicy.NEVER) {
+            sync();
+        }
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        checkpointFile.close();
+    }
+
+    private synchronized void syncIfDirty() {
+        if (dirty) {
+            try {
+                sync();
+            } catch (IOException ex) {
+                System.out.println("Error forcing the spool to disk.");
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        if (segments.size() >= maxSegments) {
+            throw new IOException("Spool is full, " + segments.size() + " segments are in use");
+        }
+        MappedByteBuffer buffer = writeSegment.buffer;
+        // Recovered segments may hold stale bytes past the last record, so the end is marked explicitly
+        if (buffer.position() + 4 <= segmentSize) {
+            buffer.putInt(buffer.position(), 0);
+        }
+        if (fsync != FsyncPolicy.NEVER) {
+            buffer.force();
+            syncs++;
+        }
+        writeSegment = openSegment(nextSequence);
+        segments.add(writeSegment);
+    }
+
+    private void recover() throws IOException {
+        settledSequence = checkpointFile.length() >= 8 ? checkpointFile.readLong() : 0;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        Arrays.sort(files);
+        long expected = -1;
+        boolean valid = true;
+        for (File file : files) {
+            String name = file.getName();
+            long first = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            if (!valid || (expected >= 0 && first != expected)) {
+                // After a corrupt record or a gap
+                valid = false;
+                if (!file.delete()) {
+                    throw new IOException("Cannot delete spool segment " + file);
+                }
+                continue;
+            }
+            if (segments.isEmpty() && settledSequence < first) {
+                // The checkpoint was not forced before settled segments were deleted
+                settledSequence = first;
+            }
+            Segment segment = openSegment(first);
+            segments.add(segment);
+            expected = first;
+            int position = 0;
+            while (isValid(segment.buffer, position, expected)) {
+                if (expected == settledSequence) {
+                    settledSegment = segment;
+                    settledPosition = position;
+                }
+                position += segment.buffer.getInt(position);
+                expected++;
+            }
+            segment.buffer.position(position);
+            valid = position + 4 > segmentSize || segment.buffer.getInt(position) == 0;
+        }
+        nextSequence = Math.max(expected, 0);
+
+        if (settledSegment == null) {
+            // Nothing unsettled is left, start over with an empty segment
+            for (Segment segment : segments) {
+                segment.channel.close();
+                segment.delete();
+            }
+            segments.clear();
+            nextSequence = Math.max(nextSequence, settledSequence);
+            settledSequence = nextSequence;
+            segments.add(openSegment(nextSequence));
+            settledSegment = segments.get(0);
+            settledPosition = 0;
+        } else {
+            while (segments.get(0) != settledSegment) {
+                segments.remove(0).delete();
+            }
+        }
+        writeSegment = segments.get(segments.size() - 1);
+        rewind();
+    }
+
+    private boolean isValid(ByteBuffer buffer, int position, long sequence) {
+        if (position + HEADER_SIZE > segmentSize) {
+            return false;
+        }
+        int recordSize = buffer.getInt(position);
+        if (recordSize < HEADER_SIZE || position + recordSize > segmentSize
+                || buffer.getLong(position + 4) != sequence) {
+            return false;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.limit(position + recordSize);
+        record.position(position + 4);
+        ByteBuffer sequenceBytes = record.slice();
+        sequenceBytes.limit(8);
+        record.position(position + HEADER_SIZE);
+        crc.reset();
+        crc.update(sequenceBytes);
+        crc.update(record);
+        return (int) crc.getValue() == buffer.getInt(position + 12);
+    }
+
+    private Segment openSegment(long firstSequence) throws IOException {
+        File file = new File(directory, String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    private static final class Segment {
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // View of the drainer
+        final ByteBuffer reader;
+
+        Segment(File file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.reader = buffer.duplicate();
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            if (!file.delete()) {
+                throw new IOException("Cannot delete spool segment " + file);
+            }
+        }
+    }
+}
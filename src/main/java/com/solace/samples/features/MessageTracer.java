@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: MessageTracer
+ */
+
+package com.solace.samples.features;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Traces received messages to the SLF4J logger {@code com.solace.samples.trace.<name>} without slowing down the
+ * thread that receives them.
+ *
+ * On average one in {@code sampleRate} messages is traced, and at most {@code maxPerSecond} traces are written per
+ * second; the rest are only counted. {@link #trace} just hands the message to a bounded queue, or drops it when the
+ * queue is full. Formatting and logging happen on a background thread, as a one-line summary by default or as the
+ * full message with its properties and body while full dumps are enabled. The sample rate and full dumps can be
+ * changed at runtime over JMX, on the MBean {@code com.solace.samples:type=MessageTracer,name=<name>}.
+ */
+public class MessageTracer {
+
+    /**
+     * The attributes of the tracer's MBean.
+     */
+    public interface Control {
+        int getSampleRate();
+
+        void setSampleRate(int sampleRate);
+
+        boolean isFullDumps();
+
+        void setFullDumps(boolean fullDumps);
+
+        long getSeenCount();
+
+        long getTracedCount();
+
+        long getDroppedCount();
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final Object STOP = new Object();
+
+    private final String name;
+    private final Logger logger;
+    private final int maxPerSecond;
+    private final BlockingQueue<Object> queue;
+    private final Thread appender;
+    private final Controls controls = new Controls();
+    private final LongAdder seen = new LongAdder();
+    private final LongAdder traced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong currentSecond = new AtomicLong();
+    private final AtomicInteger tracedThisSecond = new AtomicInteger();
+    private volatile int sampleRate;
+    private volatile boolean fullDumps;
+    private ObjectName objectName;
+
+    public MessageTracer(String name, int sampleRate, int maxPerSecond) {
+        this(name, sampleRate, maxPerSecond, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a tracer, starts its appender thread and registers its MBean.
+     *
+     * @param sampleRate   trace one in this many messages on average, 1 to trace all
+     * @param maxPerSecond maximum traces written per second
+     */
+    public MessageTracer(String name, int sampleRate, int maxPerSecond, int queueCapacity) {
+        this.name = name;
+        this.logger = LoggerFactory.getLogger("com.solace.samples.trace." + name);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.maxPerSecond = maxPerSecond;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.appender = new Thread(this::append, "tracer-" + name);
+        appender.setDaemon(true);
+        appender.start();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(
+                    "com.solace.samples:type=MessageTracer,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new StandardMBean(controls, Control.class), objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException ex) {
+            System.out.printf("Tracer '%s' is not available over JMX: %s%n", name, ex);
+        }
+    }
+
+    /**
+     * Traces {@code message} if it is sampled and the rate limit allows. Never blocks and never formats anything on
+     * the calling thread. The message must not be modified afterwards.
+     */
+    public void trace(Message message) {
+        seen.increment();
+        int rate = sampleRate;
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+            return;
+        }
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        if (!tryAcquire() || !queue.offer(message)) {
+            dropped.increment();
+        }
+    }
+
+    public Control getControl() {
+        return controls;
+    }
+
+    public void setFullDumps(boolean fullDumps) {
+        this.fullDumps = fullDumps;
+    }
+
+    public String summary() {
+        return String.format("Tracer '%s': %d messages seen, %d traced, %d dropped, sampling 1 in %d%s", name,
+                seen.sum(), traced.sum(), dropped.sum(), sampleRate, fullDumps ? ", full dumps" : "");
+    }
+
+    /**
+     * Writes the traces still queued, then stops the appender thread and unregisters the MBean.
+     */
+    public void close() throws InterruptedException {
+        queue.put(STOP);
+        appender.join(TimeUnit.SECONDS.toMillis(5));
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ex) {
+                // Already gone
+            }
+        }
+    }
+
+    // Allows about maxPerSecond traces per second
+    private boolean tryAcquire() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = currentSecond.get();
+        if (second != current && currentSecond.compareAndSet(current, second)) {
+            tracedThisSecond.set(0);
+        }
+        return tracedThisSecond.incrementAndGet() <= maxPerSecond;
+    }
+
+    private void append() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Object element : batch) {
+                    if (element == STOP) {
+                        return;
+                    }
+                    write((Message) element);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Message message) {
+        traced.increment();
+        try {
+            if (fullDumps) {
+                logger.info("Message Content:{}{}", System.lineSeparator(), message);
+            } else {
+                logger.info("Message {} on {}, redelivered={}, correlationId={}", message.getJMSMessageID(),
+                        message.getJMSDestination(), message.getJMSRedelivered(), message.getJMSCorrelationID());
+            }
+        } catch (JMSException | RuntimeException ex) {
+            logger.warn("Could not trace message", ex);
+        }
+    }
+
+    private class Controls implements Control {
+
+        @Override
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public void setSampleRate(int sampleRate) {
+            MessageTracer.this.sampleRate = Math.max(1, sampleRate);
+        }
+
+        @Override
+        public boolean isFullDumps() {
+            return fullDumps;
+        }
+
+        @Override
+        public void setFullDumps(boolean fullDumps) {
+            MessageTracer.this.fullDumps = fullDumps;
+        }
+
+        @Override
+        public long getSeenCount() {
+            return seen.sum();
+        }
+
+        @Override
+        public long getTracedCount() {
+            return traced.sum();
+        }
+
+        @Override
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: Metrics
+ */
+
+package com.solace.samples.features;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * A registry of named counters, gauges and timers with periodic snapshots, exposed over JMX.
+ *
+ * Recording never allocates or takes a lock: counters and gauges are striped {@link LongAdder}s and timers record
+ * into a preallocated {@link Histogram}. Rates and interval percentiles are computed once per interval by
+ * {@link #start}, which also passes each snapshot to the given reporters. All values are visible as attributes of
+ * the MBean {@code com.solace.samples:type=Metrics,name=<name>}.
+ */
+public class Metrics {
+
+    /**
+     * A monotonically increasing count, e.g. of messages sent. Its rate is computed per snapshot interval.
+     */
+    public static class Counter {
+        private final LongAdder count = new LongAdder();
+        private long lastCount;
+        private volatile double rate;
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return events per second during the last snapshot interval
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        void snapshot(double seconds) {
+            long now = count.sum();
+            rate = (now - lastCount) / seconds;
+            lastCount = now;
+        }
+    }
+
+    /**
+     * A value that goes up and down, e.g. the number of sends awaiting completion.
+     */
+    public static class Gauge {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void decrement() {
+            value.decrement();
+        }
+
+        public long getValue() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Counts events and records their duration in nanoseconds.
+     */
+    public static class Timer extends Counter {
+        private final Histogram recording = new Histogram();
+        private final Histogram interval = new Histogram();
+
+        /**
+         * Records an event that started at {@code startNanos}, a {@link System#nanoTime()} value.
+         */
+        public void stop(long startNanos) {
+            recording.recordValue(System.nanoTime() - startNanos);
+            increment();
+        }
+
+        /**
+         * @return the durations recorded during the last snapshot interval; only valid until the next snapshot
+         */
+        public Histogram getInterval() {
+            return interval;
+        }
+
+        @Override
+        void snapshot(double seconds) {
+            super.snapshot(seconds);
+            interval.reset();
+            recording.drainTo(interval);
+        }
+    }
+
+    private final String name;
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final List<MetricsReporter> reporters = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private long lastSnapshotNanos = System.nanoTime();
+
+    /**
+     * Creates a registry and registers it as an MBean named after it.
+     */
+    public Metrics(String name) {
+        this.name = name;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.solace.samples:type=Metrics,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(), objectName);
+            }
+        } catch (JMException ex) {
+            System.out.printf("Metrics '%s' are not available over JMX: %s%n", name, ex);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Counter counter(String metric) {
+        return counters.computeIfAbsent(metric, key -> new Counter());
+    }
+
+    public Gauge gauge(String metric) {
+        return gauges.computeIfAbsent(metric, key -> new Gauge());
+    }
+
+    public Timer timer(String metric) {
+        return timers.computeIfAbsent(metric, key -> new Timer());
+    }
+
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, Gauge> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    public Map<String, Timer> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    /**
+     * Takes a snapshot every {@code period} and passes it to the reporters.
+     */
+    public synchronized void start(long period, TimeUnit unit, MetricsReporter... reporters) {
+        Collections.addAll(this.reporters, reporters);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::snapshot, period, period, unit);
+        }
+    }
+
+    /**
+     * Stops the periodic snapshots after taking a final one.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        snapshot();
+    }
+
+    /**
+     * Computes the rates and interval percentiles since the previous snapshot and reports them.
+     */
+    public synchronized void snapshot() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastSnapshotNanos) / 1e9);
+        lastSnapshotNanos = now;
+        for (Counter counter : counters.values()) {
+            counter.snapshot(seconds);
+        }
+        for (Timer timer : timers.values()) {
+            timer.snapshot(seconds);
+        }
+        for (MetricsReporter reporter : reporters) {
+            reporter.report(this);
+        }
+    }
+
+    // Exposes the current values, attribute names are <metric>.<value>
+    private class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            int dot = attribute.lastIndexOf('.');
+            String metric = dot < 0 ? attribute : attribute.substring(0, dot);
+            String value = dot < 0 ? "" : attribute.substring(dot + 1);
+            Timer timer = timers.get(metric);
+            if (timer != null) {
+                switch (value) {
+                case "count":
+                    return timer.getCount();
+                case "rate":
+                    return timer.getRate();
+                case "p50":
+                    return timer.getInterval().getValueAtPercentile(50.0) / 1000.0;
+                case "p99":
+                    return timer.getInterval().getValueAtPercentile(99.0) / 1000.0;
+                case "max":
+                    return timer.getInterval().getMaxValue() / 1000.0;
+                default:
+                    break;
+                }
+            }
+            Counter counter = counters.get(metric);
+            if (counter != null && "count".equals(value)) {
+                return counter.getCount();
+            }
+            if (counter != null && "rate".equals(value)) {
+                return counter.getRate();
+            }
+            Gauge gauge = gauges.get(metric);
+            if (gauge != null && "value".equals(value)) {
+                return gauge.getValue();
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException ex) {
+                    // Left out, as the DynamicMBean contract asks
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        // Rebuilt on every call, as metrics can be added at any time
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String metric : counters.keySet()) {
+                attributes.add(attribute(metric + ".count", "long", "Total count"));
+                attributes.add(attribute(metric + ".rate", "double", "Per second during the last interval"));
+            }
+            for (String metric : gauges.keySet()) {
+                attributes.add(attribute(metric + ".value", "long", "Current value"));
+            }
+            for (String metric : timers.keySet()) {
+                attributes.add(attribute(metric + ".count", "long", "Total count"));
+                attributes.add(attribute(metric + ".rate", "double", "Per second during the last interval"));
+                attributes.add(attribute(metric + ".p50", "double", "Median in microseconds, last interval"));
+                attributes.add(attribute(metric + ".p99", "double", "99th percentile in microseconds, last interval"));
+                attributes.add(attribute(metric + ".max", "double", "Maximum in microseconds, last interval"));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Metrics of " + name,
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo attribute(String attributeName, String type, String description) {
+            return new MBeanAttributeInfo(attributeName, type, description, true, false, false);
+        }
+    }
+}
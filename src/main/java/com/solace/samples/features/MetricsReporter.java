@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: MetricsReporter
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the snapshots of a {@link Metrics} registry as readable text or as CSV with one row per metric and snapshot.
+ * Latencies are reported in microseconds.
+ */
+public class MetricsReporter {
+
+    private final PrintStream out;
+    private final boolean csv;
+
+    private MetricsReporter(PrintStream out, boolean csv) {
+        this.out = out;
+        this.csv = csv;
+        if (csv) {
+            out.println("timestamp,registry,metric,count,rate,p50_us,p99_us,max_us,value");
+        }
+    }
+
+    public static MetricsReporter text(PrintStream out) {
+        return new MetricsReporter(out, false);
+    }
+
+    public static MetricsReporter csv(File file) throws IOException {
+        return new MetricsReporter(new PrintStream(new FileOutputStream(file), true, "UTF-8"), true);
+    }
+
+    public void report(Metrics metrics) {
+        long timestamp = System.currentTimeMillis();
+        if (!csv) {
+            out.printf("%s metrics:%n", metrics.getName());
+        }
+        for (Map.Entry<String, Metrics.Counter> entry : metrics.getCounters().entrySet()) {
+            Metrics.Counter counter = entry.getValue();
+            if (csv) {
+                out.printf(Locale.ROOT, "%d,%s,%s,%d,%.1f,,,,%n", timestamp, metrics.getName(), entry.getKey(),
+                        counter.getCount(), counter.getRate());
+            } else {
+                out.printf(Locale.ROOT, "  %-24s count=%d rate=%.1f/s%n", entry.getKey(), counter.getCount(),
+                        counter.getRate());
+            }
+        }
+        for (Map.Entry<String, Metrics.Gauge> entry : metrics.getGauges().entrySet()) {
+            if (csv) {
+                out.printf(Locale.ROOT, "%d,%s,%s,,,,,,%d%n", timestamp, metrics.getName(), entry.getKey(),
+                        entry.getValue().getValue());
+            } else {
+                out.printf(Locale.ROOT, "  %-24s value=%d%n", entry.getKey(), entry.getValue().getValue());
+            }
+        }
+        for (Map.Entry<String, Metrics.Timer> entry : metrics.getTimers().entrySet()) {
+            Metrics.Timer timer = entry.getValue();
+            Histogram interval = timer.getInterval();
+            if (csv) {
+                out.printf(Locale.ROOT, "%d,%s,%s,%d,%.1f,%.1f,%.1f,%.1f,%n", timestamp, metrics.getName(),
+                        entry.getKey(), timer.getCount(), timer.getRate(),
+                        interval.getValueAtPercentile(50.0) / 1000.0, interval.getValueAtPercentile(99.0) / 1000.0,
+                        interval.getMaxValue() / 1000.0);
+            } else {
+                out.printf(Locale.ROOT, "  %-24s count=%d rate=%.1f/s latency(us) %s%n", entry.getKey(),
+                        timer.getCount(), timer.getRate(), interval.summary(1000.0));
+            }
+        }
+    }
+}
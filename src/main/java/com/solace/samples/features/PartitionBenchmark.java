@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PartitionBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+
+/**
+ * Measures how the end-to-end rate of persistent messages scales when they are spread over 1, 2, 4 and 8 queues by
+ * a {@link PartitionedProducer} and read back by a {@link PartitionedConsumer}.
+ *
+ * For every partition count, the given number of keyed messages is sent and the time until all of them have been
+ * received is taken. The share of keys that would move to another queue when going from the previous partition
+ * count is printed alongside.
+ */
+public class PartitionBenchmark {
+
+    final String QUEUE_NAME = "Q/tutorial";
+
+    static final int[] PARTITION_COUNTS = { 1, 2, 4, 8 };
+
+    private void run(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+        int keyCount = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        int payloadSize = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        System.out.printf("PartitionBenchmark is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key-" + i;
+        }
+
+        double[] rates = new double[PARTITION_COUNTS.length];
+        for (int i = 0; i < PARTITION_COUNTS.length; i++) {
+            int partitions = PARTITION_COUNTS[i];
+            Connection consumerConnection = connectionFactory.createConnection();
+            Connection producerConnection = connectionFactory.createConnection();
+            try (PartitionedConsumer consumer = new PartitionedConsumer(consumerConnection, QUEUE_NAME, partitions,
+                    message -> {
+                    });
+                    PartitionedProducer producer = new PartitionedProducer(producerConnection, QUEUE_NAME,
+                            partitions, 100)) {
+                consumerConnection.start();
+                long start = System.nanoTime();
+                for (int n = 0; n < messageCount; n++) {
+                    producer.send(keys[n % keyCount], session -> session.createTextMessage(payload));
+                }
+                if (!producer.flush(30, TimeUnit.SECONDS)) {
+                    System.out.println("Timed out waiting for unsettled messages.");
+                }
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                while (consumer.getReceivedCount() < messageCount && System.nanoTime() - deadline < 0) {
+                    Thread.sleep(1);
+                }
+                rates[i] = consumer.getReceivedCount() / ((System.nanoTime() - start) / 1e9);
+                System.out.println(producer.summary());
+                System.out.println(consumer.summary());
+            } finally {
+                producerConnection.close();
+                consumerConnection.close();
+            }
+        }
+
+        System.out.printf("%10s %12s %8s %8s%n", "partitions", "msgs/s", "speedup", "moved");
+        for (int i = 0; i < PARTITION_COUNTS.length; i++) {
+            double moved = i == 0 ? 0.0
+                    : new HashRing(PARTITION_COUNTS[i - 1]).movedShare(new HashRing(PARTITION_COUNTS[i]), 100000);
+            System.out.printf("%10d %12.0f %7.2fx %7.1f%%%n", PARTITION_COUNTS[i], rates[i], rates[i] / rates[0],
+                    moved * 100);
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: PartitionBenchmark amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "[<message_count> <keys> <payload_bytes>]");
+            System.exit(-1);
+        }
+        new PartitionBenchmark().run(args);
+    }
+}
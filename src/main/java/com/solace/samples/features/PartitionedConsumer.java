@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PartitionedConsumer
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+/**
+ * Consumes the queues {@code <prefix>/0} to {@code <prefix>/N-1} written by a {@link PartitionedProducer} in
+ * parallel, with one session and so one delivery thread per partition.
+ *
+ * The listener is called concurrently for different partitions and in order within each, so messages with the same
+ * key are handled in order. When the number of partitions shrinks, the queues that are no longer written must still
+ * be drained by a consumer with the old count.
+ */
+public class PartitionedConsumer implements AutoCloseable {
+
+    private final Session[] sessions;
+    private final AtomicLongArray received;
+
+    /**
+     * Subscribes to every partition. The connection must be started for messages to be received.
+     */
+    public PartitionedConsumer(Connection connection, String queuePrefix, int partitions, MessageListener listener)
+            throws JMSException {
+        this.sessions = new Session[partitions];
+        this.received = new AtomicLongArray(partitions);
+        for (int i = 0; i < partitions; i++) {
+            int partition = i;
+            sessions[i] = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = sessions[i].createConsumer(sessions[i].createQueue(queuePrefix + "/" + i));
+            consumer.setMessageListener(message -> {
+                received.incrementAndGet(partition);
+                listener.onMessage(message);
+            });
+        }
+    }
+
+    public long getReceivedCount() {
+        long total = 0;
+        for (int i = 0; i < received.length(); i++) {
+            total += received.get(i);
+        }
+        return total;
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder("received per partition:");
+        for (int i = 0; i < received.length(); i++) {
+            summary.append(' ').append(received.get(i));
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public void close() throws JMSException {
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PartitionedProducer
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Spreads persistent messages over the queues {@code <prefix>/0} to {@code <prefix>/N-1} by a key, so that the
+ * broker's per-queue throughput does not cap the total. Messages with the same key go to the same queue, in order.
+ *
+ * Keys are mapped to queues with a {@link HashRing}, so changing the number of partitions moves few keys; messages
+ * already queued for a moved key are still consumed from their old queue, possibly after newer ones. Each partition
+ * sends asynchronously on its own session through a {@link WindowedPublisher}. The key is also set as the {@value
+ * #KEY_PROPERTY} property. Like a session, a PartitionedProducer must only be used from one thread at a time.
+ */
+public class PartitionedProducer implements AutoCloseable {
+
+    public static final String KEY_PROPERTY = "PartitionKey";
+
+    private final HashRing ring;
+    private final Session[] sessions;
+    private final WindowedPublisher[] publishers;
+    private final AtomicLong failed = new AtomicLong();
+    private final long[] sent;
+
+    /**
+     * @param windowSize unsettled messages allowed per partition
+     */
+    public PartitionedProducer(Connection connection, String queuePrefix, int partitions, int windowSize)
+            throws JMSException {
+        this.ring = new HashRing(partitions);
+        this.sessions = new Session[partitions];
+        this.publishers = new WindowedPublisher[partitions];
+        this.sent = new long[partitions];
+        WindowedPublisher.DeliveryListener listener = new WindowedPublisher.DeliveryListener() {
+            @Override
+            public void onSettled(long sequence, Message message) {
+            }
+
+            @Override
+            public void onFailed(long sequence, Message message, Exception exception) {
+                failed.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < partitions; i++) {
+            sessions[i] = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            publishers[i] = new WindowedPublisher(
+                    sessions[i].createProducer(sessions[i].createQueue(queuePrefix + "/" + i)), windowSize, listener);
+        }
+    }
+
+    /**
+     * Sends the message created by {@code creator} on the session of {@code key}'s partition.
+     *
+     * @return the partition
+     */
+    public int send(String key, StripedPublisher.MessageCreator creator) throws JMSException, InterruptedException {
+        int partition = ring.partition(key);
+        Message message = creator.create(sessions[partition]);
+        message.setStringProperty(KEY_PROPERTY, key);
+        publishers[partition].send(message);
+        sent[partition]++;
+        return partition;
+    }
+
+    /**
+     * Waits until every message sent so far has been settled or has failed.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (WindowedPublisher publisher : publishers) {
+            if (!publisher.flush(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder("sent per partition:");
+        for (long count : sent) {
+            summary.append(' ').append(count);
+        }
+        return summary.append(", failed ").append(failed.get()).toString();
+    }
+
+    @Override
+    public void close() throws JMSException {
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PayloadCodec
+ */
+
+package com.solace.samples.features;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.jms.JMSException;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * The compression codecs of {@link PayloadCompressor}, identified on the wire by their name.
+ *
+ * Codecs work on arrays so they run on Java 8, and keep their native state per thread, so they can be used from any
+ * number of threads without locking or allocating per message.
+ */
+public enum PayloadCodec {
+
+    /**
+     * zlib format Deflate, as implemented by {@link Deflater}: the better ratio, for bandwidth-bound links.
+     */
+    DEFLATE("deflate") {
+        @Override
+        int maxCompressedLength(int length) {
+            // zlib's compressBound() plus room for the header and checksum
+            return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 64;
+        }
+
+        @Override
+        long maxDecompressedLength(int compressedLength) {
+            // Deflate cannot encode more than 258 bytes in one bit, a ratio of 1032 to 1
+            return compressedLength * 1032L;
+        }
+
+        @Override
+        int compress(byte[] src, int offset, int length, byte[] dst) {
+            Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            deflater.setInput(src, offset, length);
+            deflater.finish();
+            int written = 0;
+            while (!deflater.finished() && written < dst.length) {
+                written += deflater.deflate(dst, written, dst.length - written);
+            }
+            return deflater.finished() ? written : -1;
+        }
+
+        @Override
+        void decompress(byte[] src, int offset, int length, byte[] dst, int originalLength) throws JMSException {
+            Inflater inflater = INFLATERS.get();
+            inflater.reset();
+            inflater.setInput(src, offset, length);
+            int read = 0;
+            try {
+                while (read < originalLength && !inflater.finished()) {
+                    int n = inflater.inflate(dst, read, originalLength - read);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += n;
+                }
+            } catch (DataFormatException ex) {
+                throw corrupt(ex);
+            }
+            if (read != originalLength) {
+                throw corrupt(null);
+            }
+        }
+    },
+
+    /**
+     * LZ4 block format, as implemented by lz4-java: several times faster than Deflate at a lower ratio, for when
+     * compression should not cost throughput.
+     */
+    LZ4("lz4") {
+        @Override
+        int maxCompressedLength(int length) {
+            return Lz4.COMPRESSOR.maxCompressedLength(length);
+        }
+
+        @Override
+        long maxDecompressedLength(int compressedLength) {
+            // A match length grows by at most 255 per input byte
+            return compressedLength * 255L + 16;
+        }
+
+        @Override
+        int compress(byte[] src, int offset, int length, byte[] dst) {
+            return Lz4.COMPRESSOR.compress(src, offset, length, dst, 0, dst.length);
+        }
+
+        @Override
+        void decompress(byte[] src, int offset, int length, byte[] dst, int originalLength) throws JMSException {
+            // The safe decompressor checks every read and write against the given lengths, as the payload and its
+            // original length come from the network
+            int written;
+            try {
+                written = Lz4.DECOMPRESSOR.decompress(src, offset, length, dst, 0, originalLength);
+            } catch (LZ4Exception ex) {
+                throw corrupt(ex);
+            }
+            if (written != originalLength) {
+                throw corrupt(null);
+            }
+        }
+    };
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private final String name;
+
+    PayloadCodec(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name marking payloads compressed with this codec
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the codec with the given name, ignoring case, or null if there is none
+     */
+    public static PayloadCodec forName(String name) {
+        for (PayloadCodec codec : values()) {
+            if (codec.name.equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the size of a buffer that any payload of {@code length} bytes can be compressed into
+     */
+    abstract int maxCompressedLength(int length);
+
+    /**
+     * @return the most bytes that {@code compressedLength} bytes of valid input can decompress to
+     */
+    abstract long maxDecompressedLength(int compressedLength);
+
+    /**
+     * Compresses {@code length} bytes of {@code src} into the start of {@code dst}.
+     *
+     * @return the compressed length, or -1 if it does not fit in {@code dst}
+     */
+    abstract int compress(byte[] src, int offset, int length, byte[] dst);
+
+    /**
+     * Decompresses {@code length} bytes of {@code src} into the first {@code originalLength} bytes of {@code dst}.
+     */
+    abstract void decompress(byte[] src, int offset, int length, byte[] dst, int originalLength) throws JMSException;
+
+    JMSException corrupt(Exception cause) {
+        JMSException ex = new JMSException("Corrupt " + name + " payload");
+        if (cause != null) {
+            ex.setLinkedException(cause);
+            ex.initCause(cause);
+        }
+        return ex;
+    }
+
+    // Looked up on first use, so that lz4-java is only needed by applications using LZ4
+    private static final class Lz4 {
+        static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+}
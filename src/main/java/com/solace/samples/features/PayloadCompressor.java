@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PayloadCompressor
+ */
+
+package com.solace.samples.features;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+/**
+ * Compresses {@link BytesMessage} payloads of at least a minimum size with a {@link PayloadCodec}.
+ *
+ * A compressed message carries the codec name and the original payload length as application properties, so
+ * compressed and uncompressed messages can share a destination and {@link #payload} can tell them apart. Payloads
+ * below the minimum size, and payloads that do not get smaller, are sent as they are. Compression buffers of up to
+ * 1 MB are reused per thread, and one compressor can be shared by any number of threads.
+ */
+public class PayloadCompressor {
+
+    // Name of the codec that compressed the payload, absent for uncompressed payloads
+    public static final String CODEC_PROPERTY = "PayloadCodec";
+    // Length of the payload before compression
+    public static final String ORIGINAL_LENGTH_PROPERTY = "PayloadOriginalLength";
+
+    // Payloads smaller than this rarely shrink by more than the two properties add
+    public static final int DEFAULT_MINIMUM_SIZE = 1024;
+    // Largest original length accepted from a received message, as it sizes the allocation
+    public static final int DEFAULT_MAX_ORIGINAL_LENGTH = 64 * 1024 * 1024;
+    // Larger buffers are allocated per call instead of being kept by the thread
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> COMPRESSED = ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
+    private static final ThreadLocal<ByteBuffer> DECOMPRESSED = ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
+
+    private final PayloadCodec codec;
+    private final int minimumSize;
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+
+    public PayloadCompressor(PayloadCodec codec) {
+        this(codec, DEFAULT_MINIMUM_SIZE);
+    }
+
+    public PayloadCompressor(PayloadCodec codec, int minimumSize) {
+        this.codec = codec;
+        this.minimumSize = minimumSize;
+    }
+
+    /**
+     * Creates a message with the payload put by {@code writer}, compressed if it is at least the minimum size.
+     */
+    public BytesMessage createMessage(Session session, BytesPayloads.PayloadWriter writer) throws JMSException {
+        ByteBuffer payload = BytesPayloads.write(writer);
+        int length = payload.position();
+        BytesMessage message = session.createBytesMessage();
+        messages.increment();
+        originalBytes.add(length);
+        if (length >= minimumSize) {
+            ByteBuffer compressed = buffer(COMPRESSED, codec.maxCompressedLength(length));
+            int compressedLength = codec.compress(payload.array(), payload.arrayOffset(), length, compressed.array());
+            if (compressedLength >= 0 && compressedLength < length) {
+                message.writeBytes(compressed.array(), 0, compressedLength);
+                message.setStringProperty(CODEC_PROPERTY, codec.getName());
+                message.setIntProperty(ORIGINAL_LENGTH_PROPERTY, length);
+                compressedMessages.increment();
+                sentBytes.add(compressedLength);
+                return message;
+            }
+        }
+        message.writeBytes(payload.array(), payload.arrayOffset(), length);
+        sentBytes.add(length);
+        return message;
+    }
+
+    /**
+     * Returns the payload of a message, decompressed if it is marked as compressed.
+     *
+     * Uncompressed payloads are returned as by {@link BytesPayloads#payload}. Decompressed payloads are returned in
+     * the calling thread's reused buffer, which is only valid until the next call on the same thread.
+     *
+     * @throws JMSException if the payload was compressed with an unknown codec, is corrupt, or claims an original
+     *         length above {@link #DEFAULT_MAX_ORIGINAL_LENGTH}
+     */
+    public static ByteBuffer payload(BytesMessage message) throws JMSException {
+        return payload(message, DEFAULT_MAX_ORIGINAL_LENGTH);
+    }
+
+    /**
+     * Returns the payload of a message as {@link #payload(BytesMessage)} does, accepting original lengths of up to
+     * {@code maxOriginalLength} bytes.
+     *
+     * The original length property is checked against this limit and against the most the codec can produce from the
+     * compressed length before anything is allocated, since any sender can set it.
+     */
+    public static ByteBuffer payload(BytesMessage message, int maxOriginalLength) throws JMSException {
+        String codecName = message.getStringProperty(CODEC_PROPERTY);
+        if (codecName == null) {
+            return BytesPayloads.payload(message);
+        }
+        PayloadCodec codec = PayloadCodec.forName(codecName);
+        if (codec == null) {
+            throw new JMSException("Unsupported payload codec '" + codecName + "'");
+        }
+        if (!message.propertyExists(ORIGINAL_LENGTH_PROPERTY)) {
+            throw new JMSException("Compressed payload without the " + ORIGINAL_LENGTH_PROPERTY + " property");
+        }
+        int originalLength;
+        try {
+            originalLength = message.getIntProperty(ORIGINAL_LENGTH_PROPERTY);
+        } catch (NumberFormatException ex) {
+            throw codec.corrupt(ex);
+        }
+        if (originalLength > maxOriginalLength) {
+            throw new JMSException("Compressed payload of " + originalLength + " bytes exceeds the limit of "
+                    + maxOriginalLength + " bytes");
+        }
+        ByteBuffer compressed = BytesPayloads.arrayPayload(message);
+        if (originalLength < 0 || originalLength > codec.maxDecompressedLength(compressed.remaining())) {
+            throw codec.corrupt(null);
+        }
+        ByteBuffer decompressed = buffer(DECOMPRESSED, originalLength);
+        codec.decompress(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining(),
+                decompressed.array(), originalLength);
+        decompressed.limit(originalLength);
+        return decompressed;
+    }
+
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return the number of payload bytes passed in for every byte sent, 1.0 if nothing was compressed
+     */
+    public double getCompressionRatio() {
+        long sent = sentBytes.sum();
+        return sent == 0 ? 1.0 : (double) originalBytes.sum() / sent;
+    }
+
+    public String summary() {
+        return String.format("%s compressed %d of %d messages, %d bytes sent for %d payload bytes (ratio %.2f)",
+                codec.getName(), compressedMessages.sum(), messages.sum(), sentBytes.sum(), originalBytes.sum(),
+                getCompressionRatio());
+    }
+
+    // Returns the thread's buffer, cleared and grown to at least the given capacity; buffers too large to keep are
+    // returned without replacing the thread's one
+    private static ByteBuffer buffer(ThreadLocal<ByteBuffer> buffers, int capacity) {
+        ByteBuffer buffer = buffers.get();
+        if (buffer.capacity() < capacity) {
+            if (capacity > MAX_RETAINED_CAPACITY) {
+                return ByteBuffer.allocate(capacity);
+            }
+            buffer = ByteBuffer.allocate(Math.min(MAX_RETAINED_CAPACITY, Math.max(capacity, buffer.capacity() * 2)));
+            buffers.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+}
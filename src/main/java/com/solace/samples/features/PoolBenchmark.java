@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PoolBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+
+/**
+ * Compares the latency of a single send when every operation opens its own connection, session and producer, as the
+ * samples used to, with borrowing them from a {@link ConnectionPool}.
+ *
+ * Messages are sent persistent, so every operation includes the round trip for the broker's acknowledgement.
+ */
+public class PoolBenchmark {
+
+    final String TOPIC_NAME = "T/GettingStarted/pool";
+
+    private void run(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int operations = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        System.out.printf("PoolBenchmark is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+
+        Histogram unpooled = new Histogram();
+        for (int i = 0; i < operations; i++) {
+            long start = System.nanoTime();
+            Connection connection = connectionFactory.createConnection();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic(TOPIC_NAME);
+            MessageProducer producer = session.createProducer(topic);
+            producer.send(session.createTextMessage("Pool benchmark #" + i), DeliveryMode.PERSISTENT,
+                    Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            producer.close();
+            session.close();
+            connection.close();
+            unpooled.recordValue(System.nanoTime() - start);
+        }
+
+        Histogram pooled = new Histogram();
+        ConnectionPool pool = new ConnectionPool(connectionFactory);
+        for (int i = 0; i < operations; i++) {
+            long start = System.nanoTime();
+            try (ConnectionPool.PooledSession pooledSession = pool.borrow(10, TimeUnit.SECONDS)) {
+                Session session = pooledSession.getSession();
+                Topic topic = session.createTopic(TOPIC_NAME);
+                pooledSession.getProducer(topic).send(session.createTextMessage("Pool benchmark #" + i),
+                        DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            }
+            pooled.recordValue(System.nanoTime() - start);
+        }
+        System.out.println(pool.summary());
+        pool.close();
+
+        System.out.printf("connection per operation: mean %10.1f us, %s%n", unpooled.getMean() / 1000.0,
+                unpooled.summary(1000.0));
+        System.out.printf("pooled:                   mean %10.1f us, %s%n", pooled.getMean() / 1000.0,
+                pooled.summary(1000.0));
+        System.out.printf("saved per operation:      mean %10.1f us%n",
+                (unpooled.getMean() - pooled.getMean()) / 1000.0);
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: PoolBenchmark amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "[<operations>]");
+            System.exit(-1);
+        }
+        new PoolBenchmark().run(args);
+    }
+}
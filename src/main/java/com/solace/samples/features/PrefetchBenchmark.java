@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: PrefetchBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+
+/**
+ * Compares the throughput and heap use of consumers with static prefetch settings against an {@link
+ * AdaptiveConsumer}.
+ *
+ * For every setting the queue is filled with the given number of messages, which are then consumed with a simulated
+ * handling time. The heap in use is sampled every 10 ms while consuming; the peak and average show how much the
+ * prefetched messages cost. The queue is created on the message broker.
+ */
+public class PrefetchBenchmark {
+
+    final String QUEUE_NAME = "Q/tutorial/prefetch";
+
+    static final int[] STATIC_PREFETCHES = { 1, 10, 100, 1000 };
+    static final int MIN_PREFETCH = 1;
+    static final int MAX_PREFETCH = 5000;
+    static final long TARGET_BUFFER_MILLIS = 200;
+    static final long MAX_BUFFER_BYTES = 64L * 1024 * 1024;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private void run(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int messageCount = args.length > 3 ? Integer.parseInt(args[3]) : 20000;
+        int payloadSize = args.length > 4 ? Integer.parseInt(args[4]) : 16384;
+        long workMicros = args.length > 5 ? Long.parseLong(args[5]) : 50;
+        System.out.printf("PrefetchBenchmark is connecting to Solace messaging at %s...%n", solaceHost);
+
+        int runs = STATIC_PREFETCHES.length + 1;
+        String[] names = new String[runs];
+        double[][] results = new double[runs][];
+        for (int i = 0; i < runs; i++) {
+            boolean adaptive = i == STATIC_PREFETCHES.length;
+            int minPrefetch = adaptive ? MIN_PREFETCH : STATIC_PREFETCHES[i];
+            int maxPrefetch = adaptive ? MAX_PREFETCH : STATIC_PREFETCHES[i];
+            names[i] = adaptive ? "adaptive" : String.valueOf(STATIC_PREFETCHES[i]);
+            fill(solaceHost, solaceUsername, solacePassword, messageCount, payloadSize);
+            results[i] = consume(solaceHost, solaceUsername, solacePassword, messageCount, workMicros, minPrefetch,
+                    maxPrefetch);
+        }
+
+        System.out.printf("%10s %12s %12s %12s %14s%n", "prefetch", "msgs/s", "peak heap MB", "avg heap MB",
+                "max prefetch");
+        for (int i = 0; i < runs; i++) {
+            System.out.printf("%10s %12.0f %12.1f %12.1f %14.0f%n", names[i], results[i][0], results[i][1],
+                    results[i][2], results[i][3]);
+        }
+    }
+
+    private void fill(String host, String username, String password, int messageCount, int payloadSize)
+            throws Exception {
+        Connection connection = new JmsConnectionFactory(username, password, host).createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue(QUEUE_NAME);
+            MessageProducer producer = session.createProducer(queue);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            byte[] payload = new byte[payloadSize];
+            for (int i = 0; i < messageCount; i++) {
+                BytesMessage message = session.createBytesMessage();
+                message.writeBytes(payload);
+                producer.send(message);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the rate, the peak and average heap in use in MB and the largest prefetch used
+     */
+    private double[] consume(String host, String username, String password, int messageCount, long workMicros,
+            int minPrefetch, int maxPrefetch) throws Exception {
+        AdaptivePrefetchPolicy prefetchPolicy = new AdaptivePrefetchPolicy(minPrefetch);
+        JmsConnectionFactory connectionFactory = new JmsConnectionFactory(username, password, host);
+        connectionFactory.setPrefetchPolicy(prefetchPolicy);
+        Connection connection = connectionFactory.createConnection();
+        CountDownLatch done = new CountDownLatch(messageCount);
+        AtomicLong peakHeap = new AtomicLong();
+        AtomicLong heapSum = new AtomicLong();
+        AtomicLong heapSamples = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            AdaptiveConsumer consumer = new AdaptiveConsumer(session, session.createQueue(QUEUE_NAME),
+                    prefetchPolicy, minPrefetch, maxPrefetch, TARGET_BUFFER_MILLIS, MAX_BUFFER_BYTES, message -> {
+                        if (workMicros > 0) {
+                            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+                        }
+                        done.countDown();
+                    });
+
+            // Start from a collected heap so that the samples show what the consumer keeps alive
+            System.gc();
+            sampler.scheduleAtFixedRate(() -> {
+                long used = memory.getHeapMemoryUsage().getUsed();
+                peakHeap.accumulateAndGet(used, Math::max);
+                heapSum.addAndGet(used);
+                heapSamples.incrementAndGet();
+            }, 0, 10, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            connection.start();
+            consumer.start();
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            sampler.shutdown();
+            consumer.close();
+            System.out.println(consumer.summary());
+            return new double[] { messageCount / seconds, peakHeap.get() / 1048576.0,
+                    heapSum.get() / 1048576.0 / Math.max(1, heapSamples.get()), consumer.getMaxPrefetch() };
+        } finally {
+            sampler.shutdownNow();
+            connection.close();
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: PrefetchBenchmark amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "[<message_count> <payload_bytes> <work_micros>]");
+            System.exit(-1);
+        }
+        new PrefetchBenchmark().run(args);
+    }
+}
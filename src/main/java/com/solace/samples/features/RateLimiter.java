@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: RateLimiter
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a single thread to a fixed rate of operations per second.
+ *
+ * Each slot is computed from the start time and the slot number rather than from the time the previous slot was
+ * used, so pacing does not drift when the caller is occasionally slow: it catches up instead, the way an open
+ * workload would. Not thread-safe; give each sending thread its own limiter.
+ */
+public class RateLimiter {
+
+    private final double intervalNanos;
+    private final long startNanos;
+    private long slot;
+
+    public RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        this.intervalNanos = 1_000_000_000.0 / permitsPerSecond;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until the next slot is due and returns its intended start time in {@link System#nanoTime()} terms.
+     * Latency measured from the returned time rather than from "now" includes any time spent waiting behind a
+     * stalled operation.
+     */
+    public long acquire() {
+        long intended = startNanos + (long) (slot++ * intervalNanos);
+        long wait;
+        while ((wait = intended - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        return intended;
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ReceivePipeline
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+/**
+ * A message listener that only hands each message to a preallocated, lock-free ring buffer, from which worker
+ * threads take the messages and pass them to the actual handler, so a slow handler does not hold up the JMS
+ * delivery thread.
+ *
+ * When the ring is full the listener waits for a free slot. The delivery thread then stops taking messages from the
+ * prefetch buffer, so Apache Qpid JMS stops granting the broker credit and consumption pauses until the workers
+ * catch up; memory is bounded by the prefetch plus the ring. Idle workers spin briefly and then park for
+ * {@link #IDLE_PARK_NANOS}, which bounds the handoff latency when the ring has been empty.
+ *
+ * The ring is a bounded multi-producer multi-consumer queue after Dmitry Vyukov, with a sequence number per slot, so
+ * one pipeline can also be fed by the listeners of several sessions. Messages are handed to workers in order, but
+ * with more than one worker they may be handled out of order, so acknowledgements must be per message, e.g. with
+ * qpid-jms INDIVIDUAL_ACKNOWLEDGE sessions. With AUTO_ACKNOWLEDGE a message is acknowledged once it is in the ring.
+ *
+ * The pipeline measures the time the delivery thread spends in the listener, the time messages wait in the ring,
+ * and the ring occupancy seen by every message.
+ */
+public class ReceivePipeline implements MessageListener {
+
+    // Time an idle worker parks for before looking at the ring again
+    static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int SPINS = 100;
+
+    private final MessageListener handler;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final Message[] messages;
+    private final long[] offerNanos;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder fullWaits = new LongAdder();
+    private final Histogram dwell = new Histogram();
+    private final Histogram queueDelay = new Histogram();
+    private final Histogram occupancy = new Histogram();
+    private final Histogram intervalDwell = new Histogram();
+    private final Histogram intervalDelay = new Histogram();
+    private final Histogram intervalOccupancy = new Histogram();
+    private final Histogram totalDwell = new Histogram();
+    private final Histogram totalDelay = new Histogram();
+    private final Histogram totalOccupancy = new Histogram();
+    private long lastHandled;
+
+    /**
+     * @param capacity number of ring slots, rounded up to a power of two
+     */
+    public ReceivePipeline(int capacity, int workerCount, MessageListener handler) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.handler = handler;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.messages = new Message[size];
+        this.offerNanos = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new Thread(this::work, "pipeline-worker-" + i));
+        }
+    }
+
+    public void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Puts the message in the ring, waiting while the ring is full.
+     */
+    @Override
+    public void onMessage(Message message) {
+        long start = System.nanoTime();
+        if (!offer(message, start)) {
+            fullWaits.increment();
+            int idle = 0;
+            while (!offer(message, System.nanoTime())) {
+                idle = idle(idle);
+            }
+        }
+        dwell.recordValue(System.nanoTime() - start);
+    }
+
+    /**
+     * Lets the workers handle the messages left in the ring, then stops them. The pipeline must no longer be
+     * receiving messages, e.g. its consumer has been closed.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of messages in the ring
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Ends the current interval and returns its summary.
+     */
+    public synchronized String interval() {
+        intervalDwell.reset();
+        intervalDelay.reset();
+        intervalOccupancy.reset();
+        dwell.drainTo(intervalDwell);
+        queueDelay.drainTo(intervalDelay);
+        occupancy.drainTo(intervalOccupancy);
+        totalDwell.add(intervalDwell);
+        totalDelay.add(intervalDelay);
+        totalOccupancy.add(intervalOccupancy);
+        long handledNow = handled.sum();
+        String summary = String.format("handled %d msgs, ring %d/%d (p99 %d), listener dwell(us) %s, "
+                + "ring delay(us) %s", handledNow - lastHandled, size(), getCapacity(),
+                intervalOccupancy.getValueAtPercentile(99.0), intervalDwell.summary(1000.0),
+                intervalDelay.summary(1000.0));
+        lastHandled = handledNow;
+        return summary;
+    }
+
+    /**
+     * @return the summary of the whole run up to the last interval
+     */
+    public synchronized String summary() {
+        return String.format("Handled %d messages, %d failed, listener waited for a full ring %d times, "
+                + "ring occupancy %s, listener dwell(us) %s, ring delay(us) %s", handled.sum(), failed.sum(),
+                fullWaits.sum(), totalOccupancy.summary(1.0), totalDwell.summary(1000.0),
+                totalDelay.summary(1000.0));
+    }
+
+    private boolean offer(Message message, long now) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    messages[index] = message;
+                    offerNanos[index] = now;
+                    // Publishes the slot to the workers
+                    sequences.lazySet(index, position + 1);
+                    occupancy.recordValue(position + 1 - head.get());
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void work() {
+        int idle = 0;
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    Message message = messages[index];
+                    long offered = offerNanos[index];
+                    messages[index] = null;
+                    // Frees the slot for the listener
+                    sequences.lazySet(index, position + mask + 1);
+                    queueDelay.recordValue(System.nanoTime() - offered);
+                    handle(message);
+                    idle = 0;
+                }
+            } else if (difference < 0) {
+                if (!running && tail.get() == head.get()) {
+                    return;
+                }
+                idle = idle(idle);
+            }
+        }
+    }
+
+    private void handle(Message message) {
+        try {
+            handler.onMessage(message);
+            handled.increment();
+        } catch (RuntimeException ex) {
+            failed.increment();
+            System.out.println("Error processing incoming message.");
+            ex.printStackTrace();
+        }
+    }
+
+    // Spins, then yields, then parks, returning the number of rounds spent idle so far
+    private static int idle(int rounds) {
+        if (rounds >= SPINS * 2) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+            return rounds;
+        }
+        if (rounds >= SPINS) {
+            Thread.yield();
+        }
+        return rounds + 1;
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ReplierService
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.qpid.jms.JmsTemporaryQueue;
+
+/**
+ * A long-running replier that handles requests on a bounded pool of workers and reports requests/s and service-time
+ * percentiles every second.
+ *
+ * The request listener only hands each request to a worker. Replies are created and sent on sessions and producers
+ * taken from a pool of reply channels, since a JMS session must not be shared between threads; a worker only holds a
+ * channel while it does so, not while the handler runs. When all workers are busy and their queue is full, the
+ * listener blocks, which holds back delivery on the request session and lets requests queue up at the broker instead
+ * of in memory.
+ *
+ * On Java 21 and later the workers can be virtual threads. {@code workers} then bounds the number of requests handled
+ * concurrently without a thread each, while the number of reply channels stays small, by default
+ * {@link #DEFAULT_VIRTUAL_REPLY_CHANNELS}, so a handler that blocks, e.g. on a remote call, does not need a JMS
+ * session for the whole time.
+ *
+ * Resolved reply destinations are kept in a shared {@link ReplyDestinationCache}. Optionally each reply channel also
+ * keeps dedicated producers for its most recent reply destinations in a {@link ReplyProducerCache}.
+ */
+public class ReplierService implements AutoCloseable {
+
+    // Number of distinct requestors whose reply destination is kept resolved
+    static final int REPLY_DESTINATION_CACHE_SIZE = 1024;
+    // Reply channels used with virtual threads unless given, as sending is short compared to handling
+    public static final int DEFAULT_VIRTUAL_REPLY_CHANNELS = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Handles one request by filling in its reply. Called concurrently from the worker threads.
+     */
+    public interface RequestHandler {
+
+        void handle(Message request, TextMessage reply) throws Exception;
+    }
+
+    private final RequestHandler handler;
+    private final int workers;
+    private final int replyChannelCount;
+    private final Session requestSession;
+    private final MessageConsumer requestConsumer;
+    private final ExecutorService executor;
+    private final Semaphore capacity;
+    private final BlockingQueue<ReplyChannel> replyChannels;
+    private final ReplyDestinationCache replyDestinations = new ReplyDestinationCache(REPLY_DESTINATION_CACHE_SIZE);
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+
+    private final LongAdder replied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final Histogram serviceTime = new Histogram();
+    private final Histogram intervalServiceTime = new Histogram();
+    private long lastReplied;
+
+    public ReplierService(Connection connection, Destination requestDestination, int workers, boolean virtualThreads,
+            RequestHandler handler) throws JMSException {
+        this(connection, requestDestination, workers, virtualThreads, 0, handler);
+    }
+
+    public ReplierService(Connection connection, Destination requestDestination, int workers, boolean virtualThreads,
+            int producerCacheSize, RequestHandler handler) throws JMSException {
+        this(connection, requestDestination, workers, virtualThreads, 0, producerCacheSize, handler);
+    }
+
+    /**
+     * @param workers           number of requests handled concurrently
+     * @param virtualThreads    run the workers on virtual threads if the JVM supports them
+     * @param replyChannels     number of reply sessions, or 0 for one per worker on platform threads and
+     *                          {@link #DEFAULT_VIRTUAL_REPLY_CHANNELS} on virtual threads
+     * @param producerCacheSize number of dedicated reply producers each reply channel keeps open, or 0 to reply
+     *                          through an anonymous producer
+     */
+    public ReplierService(Connection connection, Destination requestDestination, int workers, boolean virtualThreads,
+            int replyChannels, int producerCacheSize, RequestHandler handler) throws JMSException {
+        this.handler = handler;
+        this.workers = workers;
+        ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualThreads && virtualExecutor == null) {
+            System.out.println("Virtual threads need Java 21 or later, using platform threads.");
+        }
+        this.executor = virtualExecutor != null ? virtualExecutor : Executors.newFixedThreadPool(workers);
+        // Up to one queued request per worker in addition to the ones being handled
+        this.capacity = new Semaphore(workers * 2);
+        if (replyChannels <= 0) {
+            replyChannels = virtualExecutor != null ? Math.min(workers, DEFAULT_VIRTUAL_REPLY_CHANNELS) : workers;
+        }
+        this.replyChannelCount = replyChannels;
+        this.replyChannels = new ArrayBlockingQueue<>(replyChannels);
+        for (int i = 0; i < replyChannels; i++) {
+            this.replyChannels.add(new ReplyChannel(connection.createSession(false, Session.AUTO_ACKNOWLEDGE),
+                    producerCacheSize));
+        }
+        this.requestSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        this.requestConsumer = requestSession.createConsumer(requestDestination);
+        requestConsumer.setMessageListener(this::dispatch);
+        reporter.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() throws JMSException {
+        requestConsumer.close();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        reporter.shutdown();
+        for (ReplyChannel channel : replyChannels) {
+            channel.close();
+        }
+        requestSession.close();
+    }
+
+    // Called on the request session's delivery thread
+    private void dispatch(Message request) {
+        long receivedNanos = System.nanoTime();
+        try {
+            capacity.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(request, receivedNanos);
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            // The executor has been shut down
+            capacity.release();
+        }
+    }
+
+    private void process(Message request, long receivedNanos) {
+        busy.incrementAndGet();
+        try {
+            Destination replyTo = request.getJMSReplyTo();
+            if (replyTo == null) {
+                System.out.println("Received message without reply-to field.");
+                return;
+            }
+            // workaround as the Apache Qpid JMS API always sets JMSReplyTo as non-temporary
+            JmsTemporaryQueue replyDestination = replyDestinations.resolve(replyTo);
+
+            // A message created on one session can be sent on another, so the channel is not held while handling
+            TextMessage reply;
+            ReplyChannel channel = replyChannels.take();
+            try {
+                reply = channel.session.createTextMessage();
+            } finally {
+                replyChannels.add(channel);
+            }
+            handler.handle(request, reply);
+            reply.setJMSCorrelationID(request.getJMSCorrelationID());
+            channel = replyChannels.take();
+            try {
+                channel.send(replyDestination, reply);
+            } catch (JMSException ex) {
+                // Most likely the requestor and its temporary queue have gone away
+                replyDestinations.evict(replyDestination);
+                throw ex;
+            } finally {
+                replyChannels.add(channel);
+            }
+            replied.increment();
+            serviceTime.recordValue(System.nanoTime() - receivedNanos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            failed.increment();
+            System.out.println("Error processing incoming request.");
+            ex.printStackTrace();
+        } finally {
+            busy.decrementAndGet();
+        }
+    }
+
+    private void report() {
+        long repliedNow = replied.sum();
+        intervalServiceTime.reset();
+        serviceTime.drainTo(intervalServiceTime);
+        System.out.printf("%d requests/s, %d failed, %d/%d workers busy, %d/%d reply channels busy, "
+                + "service time(us) %s%n", repliedNow - lastReplied, failed.sum(), busy.get(), workers,
+                replyChannelCount - replyChannels.size(), replyChannelCount, intervalServiceTime.summary(1000.0));
+        lastReplied = repliedNow;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    private static class ReplyChannel {
+        final Session session;
+        final MessageProducer anonymousProducer;
+        final ReplyProducerCache producers;
+
+        ReplyChannel(Session session, int producerCacheSize) throws JMSException {
+            this.session = session;
+            if (producerCacheSize > 0) {
+                this.anonymousProducer = null;
+                this.producers = new ReplyProducerCache(session, producerCacheSize);
+            } else {
+                // Anonymous producer, the reply destination differs per request
+                this.anonymousProducer = session.createProducer(null);
+                this.producers = null;
+            }
+        }
+
+        void send(Destination destination, Message reply) throws JMSException {
+            if (producers != null) {
+                producers.send(destination, reply);
+            } else {
+                anonymousProducer.send(destination, reply, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                        Message.DEFAULT_TIME_TO_LIVE);
+            }
+        }
+
+        void close() throws JMSException {
+            if (producers != null) {
+                producers.close();
+            }
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ReplyDestinationCache
+ */
+
+package com.solace.samples.features;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Destination;
+
+import org.apache.qpid.jms.JmsDestination;
+import org.apache.qpid.jms.JmsTemporaryQueue;
+
+/**
+ * A bounded, least-recently-used cache of resolved reply destinations, shared by all threads of a replier.
+ *
+ * Apache Qpid JMS always reports JMSReplyTo as a non-temporary destination, so a replier has to turn its address back
+ * into a temporary queue before replying. With a few long-lived requestors the same few addresses come back over and
+ * over, so the resolved destination is kept instead of being allocated per reply.
+ *
+ * A temporary queue going away is not announced to the replier, and non-persistent replies to it often do not fail.
+ * So besides being evicted when a send fails, or as the least recently used, a destination is forgotten once it has
+ * not been used for {@code maxIdleMillis}.
+ */
+public class ReplyDestinationCache {
+
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 60000;
+
+    private final long maxIdleNanos;
+    private final Map<String, CachedDestination> destinations;
+
+    public ReplyDestinationCache(int maxEntries) {
+        this(maxEntries, DEFAULT_MAX_IDLE_MILLIS);
+    }
+
+    public ReplyDestinationCache(int maxEntries, long maxIdleMillis) {
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+        this.destinations = new LinkedHashMap<String, CachedDestination>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedDestination> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the temporary queue to reply to for a request's JMSReplyTo.
+     */
+    public JmsTemporaryQueue resolve(Destination replyTo) {
+        String address = ((JmsDestination) replyTo).getAddress();
+        long now = System.nanoTime();
+        synchronized (destinations) {
+            evictIdle(now);
+            CachedDestination cached = destinations.get(address);
+            if (cached == null) {
+                cached = new CachedDestination(new JmsTemporaryQueue(address));
+                destinations.put(address, cached);
+            }
+            cached.lastUsedNanos = now;
+            return cached.destination;
+        }
+    }
+
+    /**
+     * Forgets a reply destination, e.g. after a send to it failed because its requestor has gone away.
+     */
+    public void evict(JmsTemporaryQueue destination) {
+        synchronized (destinations) {
+            CachedDestination cached = destinations.get(destination.getAddress());
+            if (cached != null && cached.destination == destination) {
+                destinations.remove(destination.getAddress());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (destinations) {
+            return destinations.size();
+        }
+    }
+
+    // The map is in access order, so the idle destinations come first
+    private void evictIdle(long now) {
+        Iterator<CachedDestination> it = destinations.values().iterator();
+        while (it.hasNext() && now - it.next().lastUsedNanos >= maxIdleNanos) {
+            it.remove();
+        }
+    }
+
+    private static final class CachedDestination {
+        final JmsTemporaryQueue destination;
+        long lastUsedNanos;
+
+        CachedDestination(JmsTemporaryQueue destination) {
+            this.destination = destination;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: ReplyProducerCache
+ */
+
+package com.solace.samples.features;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Sends replies through producers dedicated to their reply destination, keeping the most recently used ones open.
+ *
+ * An anonymous producer ({@code session.createProducer(null)}) has to find the link to the destination again for
+ * every send. A dedicated producer keeps its link, so replies to a long-lived requestor skip that lookup. The least
+ * recently used producer is closed once more than {@code maxProducers} are open, and a producer whose send fails is
+ * closed and forgotten, as that usually means its requestor's temporary queue has gone away.
+ *
+ * Non-persistent sends to a deleted temporary queue often do not fail, though, so producers that have not been used
+ * for {@code maxIdleMillis} are closed as well. That check runs on each send, as producers must only be used by their
+ * session's thread, so idle producers stay open until the next reply is sent.
+ *
+ * Producers belong to the session they were created on, so each session needs its own cache.
+ */
+public class ReplyProducerCache implements AutoCloseable {
+
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 60000;
+
+    private final Session session;
+    private final long maxIdleNanos;
+    private final Map<Destination, CachedProducer> producers;
+
+    public ReplyProducerCache(Session session, int maxProducers) {
+        this(session, maxProducers, DEFAULT_MAX_IDLE_MILLIS);
+    }
+
+    public ReplyProducerCache(Session session, int maxProducers, long maxIdleMillis) {
+        this.session = session;
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+        this.producers = new LinkedHashMap<Destination, CachedProducer>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Destination, CachedProducer> eldest) {
+                if (size() > maxProducers) {
+                    closeQuietly(eldest.getValue().producer);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Sends a non-persistent reply to {@code destination}.
+     *
+     * @throws JMSException if the send failed; the destination's producer has then been closed
+     */
+    public void send(Destination destination, Message reply) throws JMSException {
+        long now = System.nanoTime();
+        evictIdle(now);
+        CachedProducer cached = producers.get(destination);
+        if (cached == null) {
+            cached = new CachedProducer(session.createProducer(destination));
+            producers.put(destination, cached);
+        }
+        cached.lastUsedNanos = now;
+        try {
+            cached.producer.send(reply, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                    Message.DEFAULT_TIME_TO_LIVE);
+        } catch (JMSException ex) {
+            producers.remove(destination);
+            closeQuietly(cached.producer);
+            throw ex;
+        }
+    }
+
+    public int size() {
+        return producers.size();
+    }
+
+    @Override
+    public void close() {
+        for (CachedProducer cached : producers.values()) {
+            closeQuietly(cached.producer);
+        }
+        producers.clear();
+    }
+
+    // The map is in access order, so the idle producers come first
+    private void evictIdle(long now) {
+        Iterator<CachedProducer> it = producers.values().iterator();
+        while (it.hasNext()) {
+            CachedProducer cached = it.next();
+            if (now - cached.lastUsedNanos < maxIdleNanos) {
+                break;
+            }
+            it.remove();
+            closeQuietly(cached.producer);
+        }
+    }
+
+    private static void closeQuietly(MessageProducer producer) {
+        try {
+            producer.close();
+        } catch (JMSException ex) {
+            // The link is already gone
+        }
+    }
+
+    private static final class CachedProducer {
+        final MessageProducer producer;
+        long lastUsedNanos;
+
+        CachedProducer(MessageProducer producer) {
+            this.producer = producer;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: RoundTripProbe
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+/**
+ * Sends requests through an {@link AsyncRequestor} at a fixed rate and records their round-trip latency, printing
+ * and logging the results every second.
+ *
+ * Requests are sent on schedule whether or not earlier replies have arrived, and the corrected latency is measured
+ * from each request's scheduled time, so a slow replier cannot hide its stalls by slowing down the probe.
+ */
+public class RoundTripProbe {
+
+    static final long REPLY_TIMEOUT_MS = 10000;
+
+    private final AsyncRequestor requestor;
+    private final int requestsPerSecond;
+    private final int durationSeconds;
+    private final int payloadSize;
+    private final LatencyReport report;
+    private final LongAdder replies = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param logDirectory directory for the latency logs, or null to only print the results
+     */
+    public RoundTripProbe(AsyncRequestor requestor, int requestsPerSecond, int durationSeconds, int payloadSize,
+            File logDirectory) throws IOException {
+        this.requestor = requestor;
+        this.requestsPerSecond = requestsPerSecond;
+        this.durationSeconds = durationSeconds;
+        this.payloadSize = payloadSize;
+        this.report = new LatencyReport("round-trip", logDirectory);
+    }
+
+    /**
+     * Sends requests for the configured duration on the calling thread, then waits for the outstanding replies.
+     */
+    public void run() throws JMSException, InterruptedException {
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.printf("%s, replies %d, failed %d%n", report.interval(),
+                replies.sum(), failures.sum()), 1, 1, TimeUnit.SECONDS);
+
+        RateLimiter limiter = new RateLimiter(requestsPerSecond);
+        long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long intended;
+        while ((intended = limiter.acquire()) - endNanos < 0) {
+            long intendedNanos = EpochClock.fromNanoTime(intended);
+            long sentNanos = EpochClock.nanos();
+            TextMessage request = requestor.createTextMessage(payload);
+            requestor.request(request, REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS).whenComplete((reply, ex) -> {
+                if (ex == null) {
+                    report.record(intendedNanos, sentNanos, EpochClock.nanos());
+                    replies.increment();
+                } else {
+                    failures.increment();
+                }
+            });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLY_TIMEOUT_MS);
+        while (requestor.getPendingCount() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        reporter.shutdown();
+        reporter.awaitTermination(2, TimeUnit.SECONDS);
+        report.close();
+        System.out.printf("Replies %d, failed or timed out %d%n", replies.sum(), failures.sum());
+    }
+}
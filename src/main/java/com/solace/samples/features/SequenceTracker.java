@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: SequenceTracker
+ */
+
+package com.solace.samples.features;
+
+/**
+ * Detects lost, reordered and duplicated messages from the sequence numbers a single publisher stamped on them.
+ *
+ * A sequence number beyond the next expected one counts the skipped numbers as a gap. The gaps of the last
+ * {@value #WINDOW} sequence numbers are remembered in a bitset, so a number below the expected one that fills a gap
+ * counts as reordered and is no longer missing, while any other counts as a duplicate. A gap filled more than
+ * {@value #WINDOW} numbers late stays missing and its message counts as a duplicate. Not thread-safe; call it from the
+ * listener.
+ */
+public class SequenceTracker {
+
+    // Sequence numbers below the expected one whose gaps are remembered, a power of two
+    static final int WINDOW = 1 << 16;
+    private static final int MASK = WINDOW - 1;
+
+    // Bit (s & MASK) is set while sequence number s, within the window, has not been received
+    private final long[] gaps = new long[WINDOW / 64];
+    private long expected = -1;
+    private long received;
+    private long missing;
+    private long reordered;
+    private long duplicates;
+
+    public void track(long sequence) {
+        received++;
+        if (expected < 0 || sequence == expected) {
+            expected = sequence + 1;
+            clear(sequence);
+        } else if (sequence > expected) {
+            missing += sequence - expected;
+            // Slots of numbers older than the window are reused for the new ones
+            for (long s = Math.max(expected, sequence - WINDOW + 1); s < sequence; s++) {
+                set(s);
+            }
+            clear(sequence);
+            expected = sequence + 1;
+        } else if (expected - sequence <= WINDOW && isSet(sequence)) {
+            // A late message fills a gap counted earlier
+            clear(sequence);
+            reordered++;
+            missing--;
+        } else {
+            duplicates++;
+        }
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the number of sequence numbers skipped so far and not received late
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return the number of messages that arrived after a later one and filled a gap
+     */
+    public long getReordered() {
+        return reordered;
+    }
+
+    /**
+     * @return the number of messages whose sequence number had been received already
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    private void set(long sequence) {
+        int bit = (int) (sequence & MASK);
+        gaps[bit >>> 6] |= 1L << bit;
+    }
+
+    private void clear(long sequence) {
+        int bit = (int) (sequence & MASK);
+        gaps[bit >>> 6] &= ~(1L << bit);
+    }
+
+    private boolean isSet(long sequence) {
+        int bit = (int) (sequence & MASK);
+        return (gaps[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
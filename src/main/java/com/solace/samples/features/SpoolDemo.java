@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: SpoolDemo
+ */
+
+package com.solace.samples.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsQueue;
+
+/**
+ * Shows a {@link SpoolingProducer} riding out a broker outage against a persistent {@link LocalBroker}.
+ *
+ * Messages are sent at a fixed rate; after a third of them the broker is stopped and after two thirds it is
+ * restarted, while sending goes on into the spool. Once the spool is drained, the queue is consumed and the received
+ * spool sequence numbers are checked for lost, duplicate and reordered messages.
+ */
+public class SpoolDemo {
+
+    final String QUEUE_NAME = "Q/tutorial/spool";
+
+    // Small segments, so that the demo rolls over and cleans up several of them
+    static final int SEGMENT_SIZE = 1024 * 1024;
+    static final int MAX_SEGMENTS = 256;
+    static final int BATCH_SIZE = 100;
+    static final long FSYNC_INTERVAL_MILLIS = 100;
+
+    private void run(String... args) throws Exception {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 30000;
+        int messagesPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        MessageSpool.FsyncPolicy fsync = MessageSpool.FsyncPolicy.valueOf(
+                (args.length > 2 ? args[2] : "interval").toUpperCase(Locale.ROOT));
+        Path spoolDirectory = args.length > 3 ? new File(args[3]).toPath() : Files.createTempDirectory("spool");
+        Path dataDirectory = Files.createTempDirectory("local-broker");
+
+        LocalBroker broker = new LocalBroker(LocalBroker.DEFAULT_PORT, dataDirectory.toFile());
+        broker.start();
+        System.out.printf("SpoolDemo is using the local broker at %s and the spool in %s...%n", broker.getUrl(),
+                spoolDirectory);
+        ConnectionFactory connectionFactory = new JmsConnectionFactory("spool", "spool", broker.getUrl());
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MessageSpool spool = new MessageSpool(spoolDirectory.toFile(), SEGMENT_SIZE, MAX_SEGMENTS, fsync,
+                FSYNC_INTERVAL_MILLIS, scheduler);
+        SpoolingProducer producer = new SpoolingProducer(connectionFactory, new JmsQueue(QUEUE_NAME), spool,
+                BATCH_SIZE);
+        producer.start();
+
+        long restartNanos = 0;
+        RateLimiter limiter = new RateLimiter(messagesPerSecond);
+        for (int i = 0; i < messageCount; i++) {
+            if (i == messageCount / 3) {
+                System.out.printf("Stopping the broker after %d messages...%n", i);
+                broker.stop();
+            } else if (i == messageCount * 2 / 3) {
+                System.out.printf("Restarting the broker after %d messages, %d are spooled...%n", i,
+                        spool.getBacklog());
+                broker.start();
+                restartNanos = System.nanoTime();
+            }
+            limiter.acquire();
+            producer.send(("Spooled message #" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        if (producer.awaitDrained(60, TimeUnit.SECONDS)) {
+            System.out.printf("Drained the spool %.2f s after the restart.%n",
+                    (System.nanoTime() - restartNanos) / 1e9);
+        } else {
+            System.out.println("Timed out waiting for the spool to drain.");
+        }
+        producer.close();
+        System.out.println(producer.summary());
+        spool.close();
+        scheduler.shutdown();
+
+        try {
+            verify(connectionFactory, messageCount);
+        } finally {
+            broker.stop();
+            delete(dataDirectory);
+            if (args.length <= 3) {
+                delete(spoolDirectory);
+            }
+        }
+    }
+
+    private void verify(ConnectionFactory connectionFactory, int messageCount) throws Exception {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue(QUEUE_NAME);
+            MessageConsumer consumer = session.createConsumer(queue);
+            connection.start();
+            BitSet received = new BitSet(messageCount);
+            long duplicates = 0;
+            long reordered = 0;
+            long highest = -1;
+            Message message;
+            while ((message = consumer.receive(2000)) != null) {
+                long sequence = message.getLongProperty(SpoolingProducer.SEQUENCE_PROPERTY);
+                if (received.get((int) sequence)) {
+                    duplicates++;
+                } else if (sequence < highest) {
+                    reordered++;
+                }
+                received.set((int) sequence);
+                highest = Math.max(highest, sequence);
+            }
+            System.out.printf("Received %d of %d messages, %d duplicates, %d out of order.%n",
+                    received.cardinality(), messageCount, duplicates, reordered);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length > 0 && !Character.isDigit(args[0].charAt(0))) {
+            System.out.println("Usage: SpoolDemo [<message_count> <msgs_per_sec> <always|interval|never> "
+                    + "<spool_dir>]");
+            System.exit(-1);
+        }
+        new SpoolDemo().run(args);
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: SpoolingProducer
+ */
+
+package com.solace.samples.features;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Sends persistent messages through a {@link MessageSpool}, so that sends neither block nor fail while the broker is
+ * unreachable or slow.
+ *
+ * {@link #send} only appends the payload to the spool. A drainer thread sends the spooled payloads in order as bytes
+ * messages, in transactions of up to {@code batchSize} messages, and settles them once committed. When the
+ * connection fails, the drainer reconnects every second and replays the unsettled payloads, so messages whose commit
+ * outcome was unknown may be sent twice; each carries its spool sequence number in the {@value #SEQUENCE_PROPERTY}
+ * property to recognize them. If settling fails, e.g. because the disk is full, the drainer retries it every second
+ * before sending more, and {@link #awaitDrained} keeps waiting until it succeeds.
+ */
+public class SpoolingProducer {
+
+    public static final String SEQUENCE_PROPERTY = "SpoolSequence";
+
+    static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final ConnectionFactory connectionFactory;
+    private final Destination destination;
+    private final MessageSpool spool;
+    private final int batchSize;
+    private final Thread drainer;
+    private volatile boolean running = true;
+    // Committed payloads whose settlement could not be written yet
+    private volatile boolean settlePending;
+
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+
+    private volatile long sent;
+    private volatile long commits;
+    private volatile long failures;
+    private volatile long settleFailures;
+
+    public SpoolingProducer(ConnectionFactory connectionFactory, Destination destination, MessageSpool spool,
+            int batchSize) {
+        this.connectionFactory = connectionFactory;
+        this.destination = destination;
+        this.spool = spool;
+        this.batchSize = batchSize;
+        this.drainer = new Thread(this::drain, "spool-drainer");
+    }
+
+    /**
+     * Starts sending the spooled payloads, including those left unsettled by a previous run.
+     */
+    public void start() {
+        drainer.start();
+    }
+
+    /**
+     * Appends a payload to the spool.
+     *
+     * @return the sequence number of the payload
+     * @throws IOException if the spool is full
+     */
+    public long send(byte[] payload) throws IOException {
+        return spool.append(payload);
+    }
+
+    /**
+     * Waits until all spooled payloads are sent and their settlement is written.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (spool.getBacklog() > 0 || settlePending) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    public long getSentCount() {
+        return sent;
+    }
+
+    public String summary() {
+        return String.format("sent %d in %d transactions, %d connection failures, %d settle failures, %s", sent,
+                commits, failures, settleFailures, spool.summary());
+    }
+
+    /**
+     * Stops the drainer and closes the connection. Unsettled payloads stay in the spool for the next run.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        drainer.interrupt();
+        drainer.join();
+        disconnect();
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                if (settlePending) {
+                    spool.settle();
+                    settlePending = false;
+                }
+                if (session == null) {
+                    connect();
+                }
+                int count = spool.poll(batchSize, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, (sequence, payload) -> {
+                    BytesMessage message = BytesPayloads.createMessage(session, payload);
+                    message.setLongProperty(SEQUENCE_PROPERTY, sequence);
+                    producer.send(message);
+                });
+                if (count > 0) {
+                    session.commit();
+                    sent += count;
+                    commits++;
+                    settlePending = true;
+                    spool.settle();
+                    settlePending = false;
+                }
+            } catch (JMSException ex) {
+                // Replay the unsettled payloads once reconnected
+                spool.rewind();
+                failures++;
+                disconnect();
+                System.out.printf("Broker unavailable (%s), retrying in %d ms...%n", ex.getMessage(),
+                        RECONNECT_DELAY_MILLIS);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                spool.rewind();
+                return;
+            } catch (IOException ex) {
+                // The payloads are committed, only their settlement is retried
+                settleFailures++;
+                System.out.printf("Error settling spooled messages (%s), retrying in %d ms...%n", ex.getMessage(),
+                        RECONNECT_DELAY_MILLIS);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void connect() throws JMSException {
+        connection = connectionFactory.createConnection();
+        session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        producer = session.createProducer(destination);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+    }
+
+    private void disconnect() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (JMSException ex) {
+                // The connection is already broken
+            }
+        }
+        connection = null;
+        session = null;
+        producer = null;
+    }
+}
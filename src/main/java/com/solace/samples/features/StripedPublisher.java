@@ -0,0 +1,257 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: StripedPublisher
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.CompletionListener;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Spreads sends over several connections, each with its own session and producer, so that publishing is not limited
+ * to the single I/O thread that Apache Qpid JMS serves each connection with.
+ *
+ * Each send goes to one stripe, either round-robin or chosen by the hash of a key. Sends on a stripe are serialized
+ * and asynchronous, with at most {@link #MAX_IN_FLIGHT} awaiting completion per stripe. With key-hash routing all
+ * messages with the same key go through the same stripe in the order they were sent, so per-key ordering is kept;
+ * round-robin routing spreads the load most evenly but does not keep any order.
+ */
+public class StripedPublisher implements AutoCloseable {
+
+    // Maximum number of sends per stripe that may await their completion callback
+    static final int MAX_IN_FLIGHT = 1000;
+
+    public enum Routing {
+        ROUND_ROBIN, KEY_HASH
+    }
+
+    /**
+     * Creates a message on the session of the stripe that will send it.
+     */
+    @FunctionalInterface
+    public interface MessageCreator {
+        Message create(Session session) throws JMSException;
+    }
+
+    private final List<Stripe> stripes = new ArrayList<>();
+    private final Routing routing;
+    private final int deliveryMode;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Opens {@code stripeCount} connections to {@code destination}.
+     *
+     * @param deliveryMode one of the {@link javax.jms.DeliveryMode} constants
+     */
+    public StripedPublisher(ConnectionFactory connectionFactory, Destination destination, int stripeCount,
+            Routing routing, int deliveryMode) throws JMSException {
+        this.routing = routing;
+        this.deliveryMode = deliveryMode;
+        try {
+            for (int i = 0; i < stripeCount; i++) {
+                stripes.add(new Stripe(connectionFactory.createConnection(), destination));
+            }
+        } catch (JMSException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Sends a message without a key on the next stripe.
+     */
+    public void send(MessageCreator creator) throws JMSException, InterruptedException {
+        stripes.get(Math.floorMod(next.getAndIncrement(), stripes.size())).send(creator);
+    }
+
+    /**
+     * Sends a message on the stripe of {@code key} with key-hash routing, or on the next stripe with round-robin
+     * routing.
+     */
+    public void send(Object key, MessageCreator creator) throws JMSException, InterruptedException {
+        if (routing == Routing.ROUND_ROBIN) {
+            send(creator);
+            return;
+        }
+        // Spread the bits of poor hash codes before taking the stripe
+        int hash = key.hashCode() * 0x9E3779B9;
+        stripes.get(Math.floorMod(hash ^ (hash >>> 16), stripes.size())).send(creator);
+    }
+
+    /**
+     * Waits for every stripe's outstanding sends to complete.
+     *
+     * @return false if some were still outstanding at the timeout
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Stripe stripe : stripes) {
+            long remaining = deadline - System.nanoTime();
+            if (!stripe.inFlight.tryAcquire(MAX_IN_FLIGHT, Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            stripe.inFlight.release(MAX_IN_FLIGHT);
+        }
+        return true;
+    }
+
+    public int getStripeCount() {
+        return stripes.size();
+    }
+
+    public long getSentCount() {
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            sum += stripe.sent.sum();
+        }
+        return sum;
+    }
+
+    public long getCompletedCount() {
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            sum += stripe.completed.sum();
+        }
+        return sum;
+    }
+
+    public long getFailedCount() {
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            sum += stripe.failed.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * @return the send-completion latency of all stripes combined
+     */
+    public Histogram getLatency() {
+        Histogram combined = new Histogram();
+        for (Stripe stripe : stripes) {
+            combined.add(stripe.latency);
+        }
+        return combined;
+    }
+
+    /**
+     * Formats the combined statistics followed by the number of sends completed by each stripe.
+     */
+    public String summary() {
+        StringBuilder perStripe = new StringBuilder();
+        for (Stripe stripe : stripes) {
+            perStripe.append(perStripe.length() == 0 ? "" : " ").append(stripe.completed.sum());
+        }
+        return String.format("%d stripes: sent %d, completed %d, failed %d, latency(us) %s, per stripe [%s]",
+                stripes.size(), getSentCount(), getCompletedCount(), getFailedCount(), getLatency().summary(1000.0),
+                perStripe);
+    }
+
+    /**
+     * Closes every connection without waiting for outstanding sends, see {@link #flush}.
+     */
+    @Override
+    public void close() throws JMSException {
+        JMSException failure = null;
+        for (Stripe stripe : stripes) {
+            try {
+                stripe.connection.close();
+            } catch (JMSException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private class Stripe {
+        final Connection connection;
+        final Session session;
+        final MessageProducer producer;
+        final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        final LongAdder sent = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final Histogram latency = new Histogram();
+
+        Stripe(Connection connection, Destination destination) throws JMSException {
+            this.connection = connection;
+            this.session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            this.producer = session.createProducer(destination);
+            producer.setDeliveryMode(deliveryMode);
+        }
+
+        void send(MessageCreator creator) throws JMSException, InterruptedException {
+            inFlight.acquire();
+            boolean sending = false;
+            try {
+                // The session is not thread-safe and the lock keeps the sends of a key in order
+                synchronized (this) {
+                    producer.send(creator.create(session), new SendCompletion(this, System.nanoTime()));
+                    sending = true;
+                }
+                sent.increment();
+            } finally {
+                if (!sending) {
+                    inFlight.release();
+                }
+            }
+        }
+    }
+
+    private static class SendCompletion implements CompletionListener {
+        private final Stripe stripe;
+        private final long startNanos;
+
+        SendCompletion(Stripe stripe, long startNanos) {
+            this.stripe = stripe;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            stripe.latency.recordValue(System.nanoTime() - startNanos);
+            stripe.completed.increment();
+            stripe.inFlight.release();
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            stripe.failed.increment();
+            stripe.inFlight.release();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: StripingBenchmark
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Topic;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.JmsTopic;
+
+/**
+ * Measures how the publish rate of a {@link StripedPublisher} scales with 1, 2, 4 and 8 stripes.
+ *
+ * For every stripe count, a fixed number of threads publish non-persistent messages round-robin as fast as the
+ * stripes accept them for the given duration, and the completed sends per second are compared.
+ */
+public class StripingBenchmark {
+
+    final String TOPIC_NAME = "T/GettingStarted/striped";
+
+    static final int[] STRIPE_COUNTS = { 1, 2, 4, 8 };
+
+    private void run(String... args) throws Exception {
+        String solaceHost = args[0];
+        String solaceUsername = args[1];
+        String solacePassword = args[2];
+        int durationSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+        int payloadSize = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        System.out.printf("StripingBenchmark is connecting to Solace messaging at %s...%n", solaceHost);
+
+        ConnectionFactory connectionFactory = new JmsConnectionFactory(solaceUsername, solacePassword, solaceHost);
+        Topic topic = new JmsTopic(TOPIC_NAME);
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+
+        double[] rates = new double[STRIPE_COUNTS.length];
+        String[] summaries = new String[STRIPE_COUNTS.length];
+        for (int i = 0; i < STRIPE_COUNTS.length; i++) {
+            try (StripedPublisher publisher = new StripedPublisher(connectionFactory, topic, STRIPE_COUNTS[i],
+                    StripedPublisher.Routing.ROUND_ROBIN, DeliveryMode.NON_PERSISTENT)) {
+                rates[i] = publish(publisher, payload, threads, durationSeconds);
+                summaries[i] = publisher.summary();
+            }
+            System.out.println(summaries[i]);
+        }
+
+        System.out.printf("%8s %12s %8s%n", "stripes", "msgs/s", "speedup");
+        for (int i = 0; i < STRIPE_COUNTS.length; i++) {
+            System.out.printf("%8d %12.0f %7.2fx%n", STRIPE_COUNTS[i], rates[i], rates[i] / rates[0]);
+        }
+    }
+
+    private double publish(StripedPublisher publisher, String payload, int threads, int durationSeconds)
+            throws Exception {
+        long start = System.nanoTime();
+        long endNanos = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Thread> publishers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() - endNanos < 0) {
+                        publisher.send(session -> session.createTextMessage(payload));
+                    }
+                } catch (Exception ex) {
+                    System.out.println("Error publishing.");
+                    ex.printStackTrace();
+                }
+            }, "publisher-" + i);
+            publishers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : publishers) {
+            thread.join();
+        }
+        if (!publisher.flush(30, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for outstanding sends to complete.");
+        }
+        return publisher.getCompletedCount() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: StripingBenchmark amqp://<msg_backbone_ip:amqp_port> <username> <password> "
+                    + "[<duration_sec> <threads> <payload_bytes>]");
+            System.exit(-1);
+        }
+        new StripingBenchmark().run(args);
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: TimerWheel
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A hashed timer wheel for large numbers of short timeouts that are usually cancelled before they expire, such as
+ * request timeouts.
+ *
+ * Scheduling and cancelling are constant-time and lock-free: a timeout is queued for the wheel's single thread, which
+ * files it into the slot of its deadline tick and expires the slot's timeouts when the tick comes round. Timeouts
+ * fire up to one tick late. Unlike a {@link java.util.concurrent.ScheduledExecutorService}, the timer itself is the
+ * caller's object, so scheduling allocates no task or future; only the hand-off queue allocates a small node per
+ * call.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    /**
+     * A task to run when its deadline passes unless it is cancelled first. Each instance can be scheduled once.
+     */
+    public abstract static class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private volatile int state;
+        private long deadlineTick;
+
+        /**
+         * Called on the wheel's thread when the deadline has passed; must not block.
+         */
+        protected abstract void expire();
+
+        /**
+         * @return true if the timeout was cancelled, false if it has already expired or been cancelled
+         */
+        public boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Timeout>> wheel;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * @param wheelSize number of slots, rounded up to a power of two; timeouts longer than a full turn of the wheel
+     *                  simply stay in their slot for several turns
+     */
+    public TimerWheel(long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.worker = new Thread(this::runWheel, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public TimerWheel() {
+        this(10, 512);
+    }
+
+    public void schedule(Timeout timeout, long delay, TimeUnit unit) {
+        long deadlineNanos = System.nanoTime() - startNanos + unit.toNanos(delay);
+        // Round up so that a timeout never fires early
+        timeout.deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        incoming.add(timeout);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void runWheel() {
+        long tick = 0;
+        while (!closed) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException ex) {
+                    continue;
+                }
+            }
+            tick++;
+            transferIncoming(tick);
+            expireSlot(wheel.get((int) (tick & mask)), tick);
+        }
+    }
+
+    private void transferIncoming(long tick) {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            // A deadline that has already passed goes into the current slot
+            long slotTick = Math.max(timeout.deadlineTick, tick);
+            wheel.get((int) (slotTick & mask)).add(timeout);
+        }
+    }
+
+    private void expireSlot(List<Timeout> slot, long tick) {
+        int kept = 0;
+        for (int i = 0; i < slot.size(); i++) {
+            Timeout timeout = slot.get(i);
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            if (timeout.deadlineTick > tick) {
+                // Due on a later turn of the wheel
+                slot.set(kept++, timeout);
+            } else if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                try {
+                    timeout.expire();
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+        slot.subList(kept, slot.size()).clear();
+    }
+}
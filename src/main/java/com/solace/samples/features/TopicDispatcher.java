@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: TopicDispatcher
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+/**
+ * Fans messages received on a few broad broker subscriptions out to any number of local handlers, each registered for
+ * its own subscription in Solace topic syntax, see {@link TopicTrie}.
+ *
+ * Handlers are called on the session's delivery thread, once per matching subscription, and may be registered and
+ * removed while messages are dispatched. The broker subscriptions should not overlap, as a message matching several
+ * of them is received and dispatched once for each.
+ */
+public class TopicDispatcher implements AutoCloseable {
+
+    private final TopicTrie<MessageListener> handlers = new TopicTrie<>();
+    private final List<MessageConsumer> consumers = new ArrayList<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder unmatched = new LongAdder();
+
+    /**
+     * Subscribes to each of {@code brokerSubscriptions} on {@code session}, e.g. {@code T/GettingStarted/>}. The
+     * session's connection must be started for messages to be received.
+     */
+    public TopicDispatcher(Session session, String... brokerSubscriptions) throws JMSException {
+        for (String subscription : brokerSubscriptions) {
+            MessageConsumer consumer = session.createConsumer(session.createTopic(subscription));
+            consumer.setMessageListener(this::dispatch);
+            consumers.add(consumer);
+        }
+    }
+
+    /**
+     * Registers {@code handler} for the received messages whose topic matches {@code subscription}.
+     *
+     * @throws IllegalArgumentException if the subscription is empty
+     */
+    public void subscribe(String subscription, MessageListener handler) {
+        handlers.subscribe(subscription, handler);
+    }
+
+    /**
+     * @return false if {@code handler} was not registered for {@code subscription}
+     */
+    public boolean unsubscribe(String subscription, MessageListener handler) {
+        return handlers.unsubscribe(subscription, handler);
+    }
+
+    public int getHandlerCount() {
+        return handlers.size();
+    }
+
+    public String summary() {
+        return String.format("received %d, dispatched %d, unmatched %d, %d handlers", received.sum(),
+                dispatched.sum(), unmatched.sum(), handlers.size());
+    }
+
+    @Override
+    public void close() throws JMSException {
+        for (MessageConsumer consumer : consumers) {
+            consumer.close();
+        }
+    }
+
+    private void dispatch(Message message) {
+        received.increment();
+        try {
+            Destination destination = message.getJMSDestination();
+            if (!(destination instanceof Topic)) {
+                unmatched.increment();
+                return;
+            }
+            int matched = handlers.forEachMatch(((Topic) destination).getTopicName(), message,
+                    MessageListener::onMessage);
+            if (matched == 0) {
+                unmatched.increment();
+            } else {
+                dispatched.add(matched);
+            }
+        } catch (JMSException | RuntimeException ex) {
+            System.out.println("Error dispatching message.");
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: TopicTrie
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Matches topics against subscriptions in Solace topic syntax and finds the handlers registered for them.
+ *
+ * Topic levels are separated by '/'. In a subscription, a level of '*' matches any one level, a level ending in '*'
+ * such as {@code dev*} matches any level starting with the characters before it, and a last level of '>' matches one
+ * or more further levels. As in Solace, a '*' anywhere else in a level, such as in {@code a*b}, and a '>' that is not a
+ * whole last level, such as in {@code a>} or {@code >/b}, are literal characters.
+ *
+ * The subscriptions are kept in a trie of immutable nodes. Lookups read the current root and walk the trie without
+ * locking or allocating; (un)subscribing copies the nodes on the path to the changed one and publishes a new root, so
+ * a lookup sees the subscriptions either before or after a change. Changes are serialized and cost a copy of the path,
+ * so the trie suits subscriptions that change much less often than messages arrive.
+ *
+ * @param <T> the handlers
+ */
+public class TopicTrie<T> {
+
+    private static final Object[] NONE = new Object[0];
+
+    private volatile Node root = Node.EMPTY;
+    private int size;
+
+    /**
+     * Registers {@code handler} for topics matching {@code subscription}. A handler registered for several matching
+     * subscriptions is found once per subscription.
+     *
+     * @throws IllegalArgumentException if the subscription is empty
+     */
+    public synchronized void subscribe(String subscription, T handler) {
+        root = add(root, levels(subscription), 0, handler);
+        size++;
+    }
+
+    /**
+     * Removes one registration of {@code handler} for {@code subscription}.
+     *
+     * @return false if there was none
+     */
+    public synchronized boolean unsubscribe(String subscription, T handler) {
+        Node updated = remove(root, levels(subscription), 0, handler);
+        if (updated == root) {
+            return false;
+        }
+        root = updated;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the number of registrations
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Calls {@code action} with every handler registered for a subscription matching {@code topic} and {@code
+     * argument}, which saves capturing the argument in a new action per lookup.
+     *
+     * @return the number of calls
+     */
+    public <A> int forEachMatch(String topic, A argument, BiConsumer<? super T, ? super A> action) {
+        return match(root, topic, 0, argument, action);
+    }
+
+    private <A> int match(Node node, String topic, int start, A argument, BiConsumer<? super T, ? super A> action) {
+        // At least one level is left, as '>' requires
+        int matched = visit(node.rest, argument, action);
+        int slash = topic.indexOf('/', start);
+        int end = slash < 0 ? topic.length() : slash;
+        Node literal = node.literals.get(topic, start, end);
+        if (literal != null) {
+            matched += next(literal, topic, end, argument, action);
+        }
+        String[] prefixes = node.prefixes;
+        for (int i = 0; i < prefixes.length; i++) {
+            String prefix = prefixes[i];
+            if (end - start >= prefix.length() && topic.startsWith(prefix, start)) {
+                matched += next(node.prefixNodes[i], topic, end, argument, action);
+            }
+        }
+        return matched;
+    }
+
+    private <A> int next(Node child, String topic, int end, A argument, BiConsumer<? super T, ? super A> action) {
+        return end == topic.length() ? visit(child.handlers, argument, action)
+                : match(child, topic, end + 1, argument, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <A> int visit(Object[] handlers, A argument, BiConsumer<? super T, ? super A> action) {
+        for (Object handler : handlers) {
+            action.accept((T) handler, argument);
+        }
+        return handlers.length;
+    }
+
+    static String[] levels(String subscription) {
+        if (subscription.isEmpty()) {
+            throw new IllegalArgumentException("Empty subscription");
+        }
+        return subscription.split("/", -1);
+    }
+
+    // Only a whole last level of '>' is the wildcard, anywhere else it is literal
+    private static boolean isRest(String[] levels, int index) {
+        return index == levels.length - 1 && levels[index].equals(">");
+    }
+
+    private static Node add(Node node, String[] levels, int index, Object handler) {
+        if (index == levels.length) {
+            return node.with(append(node.handlers, handler), node.rest);
+        }
+        String level = levels[index];
+        if (isRest(levels, index)) {
+            return node.with(node.handlers, append(node.rest, handler));
+        }
+        if (level.endsWith("*")) {
+            String prefix = level.substring(0, level.length() - 1);
+            return node.withPrefix(prefix, add(node.prefix(prefix), levels, index + 1, handler));
+        }
+        return node.withLiteral(level, add(node.literal(level), levels, index + 1, handler));
+    }
+
+    /**
+     * @return {@code node} itself if the handler was not found
+     */
+    private static Node remove(Node node, String[] levels, int index, Object handler) {
+        if (index == levels.length) {
+            Object[] handlers = without(node.handlers, handler);
+            return handlers == node.handlers ? node : node.with(handlers, node.rest);
+        }
+        String level = levels[index];
+        if (isRest(levels, index)) {
+            Object[] rest = without(node.rest, handler);
+            return rest == node.rest ? node : node.with(node.handlers, rest);
+        }
+        if (level.endsWith("*")) {
+            String prefix = level.substring(0, level.length() - 1);
+            Node child = node.prefix(prefix);
+            Node updated = remove(child, levels, index + 1, handler);
+            return updated == child ? node : node.withPrefix(prefix, updated);
+        }
+        Node child = node.literal(level);
+        Node updated = remove(child, levels, index + 1, handler);
+        return updated == child ? node : node.withLiteral(level, updated);
+    }
+
+    private static Object[] append(Object[] handlers, Object handler) {
+        Object[] appended = Arrays.copyOf(handlers, handlers.length + 1);
+        appended[handlers.length] = handler;
+        return appended;
+    }
+
+    private static Object[] without(Object[] handlers, Object handler) {
+        for (int i = 0; i < handlers.length; i++) {
+            if (handlers[i].equals(handler)) {
+                if (handlers.length == 1) {
+                    return NONE;
+                }
+                Object[] remaining = new Object[handlers.length - 1];
+                System.arraycopy(handlers, 0, remaining, 0, i);
+                System.arraycopy(handlers, i + 1, remaining, i, handlers.length - i - 1);
+                return remaining;
+            }
+        }
+        return handlers;
+    }
+
+    private static final class Node {
+        static final Node EMPTY = new Node(LevelMap.EMPTY, new String[0], new Node[0], NONE, NONE);
+
+        final LevelMap literals;
+        final String[] prefixes;
+        final Node[] prefixNodes;
+        // Handlers of subscriptions ending at this node
+        final Object[] handlers;
+        // Handlers of subscriptions ending with '>' after this node
+        final Object[] rest;
+
+        Node(LevelMap literals, String[] prefixes, Node[] prefixNodes, Object[] handlers, Object[] rest) {
+            this.literals = literals;
+            this.prefixes = prefixes;
+            this.prefixNodes = prefixNodes;
+            this.handlers = handlers;
+            this.rest = rest;
+        }
+
+        boolean isEmpty() {
+            return literals.size == 0 && prefixes.length == 0 && handlers.length == 0 && rest.length == 0;
+        }
+
+        Node literal(String level) {
+            Node child = literals.get(level, 0, level.length());
+            return child != null ? child : EMPTY;
+        }
+
+        Node prefix(String prefix) {
+            for (int i = 0; i < prefixes.length; i++) {
+                if (prefixes[i].equals(prefix)) {
+                    return prefixNodes[i];
+                }
+            }
+            return EMPTY;
+        }
+
+        Node with(Object[] handlers, Object[] rest) {
+            return new Node(literals, prefixes, prefixNodes, handlers, rest);
+        }
+
+        Node withLiteral(String level, Node child) {
+            return new Node(literals.with(level, child.isEmpty() ? null : child), prefixes, prefixNodes, handlers,
+                    rest);
+        }
+
+        Node withPrefix(String prefix, Node child) {
+            List<String> keys = new ArrayList<>(Arrays.asList(prefixes));
+            List<Node> nodes = new ArrayList<>(Arrays.asList(prefixNodes));
+            int index = keys.indexOf(prefix);
+            if (index >= 0) {
+                keys.remove(index);
+                nodes.remove(index);
+            }
+            if (!child.isEmpty()) {
+                keys.add(prefix);
+                nodes.add(child);
+            }
+            return new Node(literals, keys.toArray(new String[0]), nodes.toArray(new Node[0]), handlers, rest);
+        }
+    }
+
+    /**
+     * An immutable open-addressing map from topic levels to nodes that looks up a level within a topic string
+     * without extracting it.
+     */
+    private static final class LevelMap {
+        static final LevelMap EMPTY = new LevelMap(new String[1], new Node[1], 0);
+
+        final String[] keys;
+        final Node[] nodes;
+        final int size;
+
+        private LevelMap(String[] keys, Node[] nodes, int size) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        Node get(String topic, int start, int end) {
+            if (size == 0) {
+                return null;
+            }
+            int mask = keys.length - 1;
+            int length = end - start;
+            for (int i = hash(topic, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key.length() == length && topic.regionMatches(start, key, 0, length)) {
+                    return nodes[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return a copy with {@code level} mapped to {@code node}, or removed if {@code node} is null
+         */
+        LevelMap with(String level, Node node) {
+            List<String> entryKeys = new ArrayList<>(size + 1);
+            List<Node> entryNodes = new ArrayList<>(size + 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && !keys[i].equals(level)) {
+                    entryKeys.add(keys[i]);
+                    entryNodes.add(nodes[i]);
+                }
+            }
+            if (node != null) {
+                entryKeys.add(level);
+                entryNodes.add(node);
+            }
+            // Kept at most half full
+            int capacity = Integer.highestOneBit(Math.max(1, entryKeys.size()) * 2 - 1) << 1;
+            String[] newKeys = new String[capacity];
+            Node[] newNodes = new Node[capacity];
+            for (int e = 0; e < entryKeys.size(); e++) {
+                String key = entryKeys.get(e);
+                int i = hash(key, 0, key.length()) & (capacity - 1);
+                while (newKeys[i] != null) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                newKeys[i] = key;
+                newNodes[i] = entryNodes.get(e);
+            }
+            return new LevelMap(newKeys, newNodes, entryKeys.size());
+        }
+
+        static int hash(String topic, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + topic.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: TransactedConsumer
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+/**
+ * Consumes on a transacted session and commits after every N handled messages or once the oldest uncommitted message
+ * is T milliseconds old, so a whole batch is settled at once. Together with a {@link TransactedPublisher} on the same
+ * session, messages consumed and published in one batch are committed or rolled back together.
+ *
+ * If the handler throws, or the commit fails, the transaction is rolled back and the broker redelivers the whole
+ * batch, so every message is handled at least once and committed exactly once. N is either fixed or adapted to a
+ * target commit latency as by {@link TransactedPublisher}.
+ *
+ * Messages are received synchronously on a thread of the consumer's own, which owns the session.
+ */
+public class TransactedConsumer {
+
+    private final Session session;
+    private final MessageConsumer consumer;
+    private final MessageListener handler;
+    private final CommitBatchSize batchSize;
+    private final long maxDelayMillis;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final Histogram commitLatency = new Histogram();
+    private volatile long committed;
+    private volatile long commits;
+    private volatile long rollbacks;
+
+    /**
+     * @param session            a transacted session, used only by this consumer
+     * @param targetCommitMillis commit latency to adapt the batch size to, or 0 to keep it fixed at {@code batchSize}
+     */
+    public TransactedConsumer(Session session, MessageConsumer consumer, int batchSize, long maxDelayMillis,
+            long targetCommitMillis, int maxBatchSize, MessageListener handler) {
+        this.session = session;
+        this.consumer = consumer;
+        this.handler = handler;
+        this.batchSize = new CommitBatchSize(batchSize, maxBatchSize,
+                TimeUnit.MILLISECONDS.toNanos(targetCommitMillis));
+        this.maxDelayMillis = maxDelayMillis;
+        this.thread = new Thread(this::consume, "transacted-consumer");
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops receiving, commits the current batch and waits for the consumer thread to finish.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    public int getBatchSize() {
+        return batchSize.get();
+    }
+
+    public Histogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    public String summary() {
+        return String.format("Committed %d messages in %d transactions (batch size now %d), %d rollbacks, "
+                + "commit latency(us) %s", committed, commits, batchSize.get(), rollbacks,
+                commitLatency.summary(1000.0));
+    }
+
+    private void consume() {
+        int received = 0;
+        long deadline = 0;
+        while (running) {
+            try {
+                long timeout = received == 0 ? maxDelayMillis : deadline - System.currentTimeMillis();
+                Message message = timeout > 0 ? consumer.receive(timeout) : null;
+                if (message != null) {
+                    if (received == 0) {
+                        deadline = System.currentTimeMillis() + maxDelayMillis;
+                    }
+                    handler.onMessage(message);
+                    received++;
+                }
+                if (received > 0 && (received >= batchSize.get() || System.currentTimeMillis() >= deadline)) {
+                    commit(received);
+                    received = 0;
+                }
+            } catch (JMSException | RuntimeException ex) {
+                System.out.println("Error in transacted batch, rolling back.");
+                ex.printStackTrace();
+                rollback();
+                received = 0;
+            }
+        }
+        try {
+            if (received > 0) {
+                commit(received);
+            }
+        } catch (JMSException ex) {
+            System.out.println("Error committing the last batch, rolling back.");
+            ex.printStackTrace();
+            rollback();
+        }
+    }
+
+    private void commit(int received) throws JMSException {
+        long start = System.nanoTime();
+        session.commit();
+        long took = System.nanoTime() - start;
+        commitLatency.recordValue(took);
+        batchSize.commitTook(took);
+        committed += received;
+        commits++;
+    }
+
+    private void rollback() {
+        rollbacks++;
+        try {
+            session.rollback();
+        } catch (JMSException ex) {
+            System.out.println("Error rolling back transaction.");
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: TransactedPublisher
+ */
+
+package com.solace.samples.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Publishes on a transacted session and commits after every N messages or once the oldest uncommitted message is T
+ * milliseconds old, whichever comes first, so the broker settles a whole batch at once instead of every persistent
+ * message on its own.
+ *
+ * N is either fixed or adapted to a target commit latency, see {@link #TransactedPublisher(Session, MessageProducer,
+ * ScheduledExecutorService, int, long, long, int)}. When a commit fails the transaction is rolled back, and the
+ * messages of the batch, which are kept until their commit succeeds, are sent again in a new transaction, up to
+ * {@link #MAX_RETRIES} times before the batch is given up and the failure thrown. If the connection is lost during a
+ * commit its outcome is unknown, so a retried batch may then be delivered twice.
+ *
+ * The session must not be used for anything else. Sends and commits are serialized, so the publisher may be used
+ * from several threads.
+ */
+public class TransactedPublisher implements AutoCloseable {
+
+    // Number of times a failed batch is sent again before giving up
+    public static final int MAX_RETRIES = 3;
+
+    private final Session session;
+    private final MessageProducer producer;
+    private final CommitBatchSize batchSize;
+    private final long maxDelayNanos;
+    private final ScheduledFuture<?> timer;
+    private final List<Message> pending = new ArrayList<>();
+    private long oldestPendingNanos;
+
+    private final Histogram commitLatency = new Histogram();
+    private long committed;
+    private long commits;
+    private long rollbacks;
+    private long retries;
+    private long failed;
+
+    /**
+     * Commits after a fixed number of messages.
+     *
+     * @param session   a transacted session
+     * @param scheduler used to commit batches that have waited {@code maxDelayMillis} without filling up
+     */
+    public TransactedPublisher(Session session, MessageProducer producer, ScheduledExecutorService scheduler,
+            int batchSize, long maxDelayMillis) {
+        this(session, producer, scheduler, batchSize, maxDelayMillis, 0, batchSize);
+    }
+
+    /**
+     * Commits after a number of messages that starts at {@code batchSize} and is adapted to keep commits taking
+     * about {@code targetCommitMillis}, without exceeding {@code maxBatchSize}.
+     *
+     * @param targetCommitMillis commit latency to adapt the batch size to, or 0 to keep it fixed
+     */
+    public TransactedPublisher(Session session, MessageProducer producer, ScheduledExecutorService scheduler,
+            int batchSize, long maxDelayMillis, long targetCommitMillis, int maxBatchSize) {
+        this.session = session;
+        this.producer = producer;
+        this.batchSize = new CommitBatchSize(batchSize, maxBatchSize,
+                TimeUnit.MILLISECONDS.toNanos(targetCommitMillis));
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.timer = scheduler.scheduleAtFixedRate(this::commitIfDue, maxDelayMillis, Math.max(1, maxDelayMillis / 2),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a message in the current transaction, committing it if the batch is full or overdue. The message must
+     * not be modified until it is committed, as it may have to be sent again.
+     */
+    public synchronized void send(Message message) throws JMSException {
+        if (pending.isEmpty()) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        producer.send(message);
+        pending.add(message);
+        if (pending.size() >= batchSize.get() || System.nanoTime() - oldestPendingNanos >= maxDelayNanos) {
+            commit();
+        }
+    }
+
+    /**
+     * Commits the current transaction, retrying the batch if the commit fails.
+     *
+     * @throws JMSException the last failure, once the batch has been given up
+     */
+    public synchronized void commit() throws JMSException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        JMSException failure = null;
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            try {
+                if (attempt > 0) {
+                    retries++;
+                    for (Message message : pending) {
+                        producer.send(message);
+                    }
+                }
+                long start = System.nanoTime();
+                session.commit();
+                long took = System.nanoTime() - start;
+                commitLatency.recordValue(took);
+                batchSize.commitTook(took);
+                committed += pending.size();
+                commits++;
+                pending.clear();
+                return;
+            } catch (JMSException ex) {
+                failure = ex;
+                rollbacks++;
+                rollback();
+            }
+        }
+        failed += pending.size();
+        pending.clear();
+        throw failure;
+    }
+
+    /**
+     * Commits the current batch and stops the commit timer.
+     */
+    @Override
+    public void close() throws JMSException {
+        timer.cancel(false);
+        commit();
+    }
+
+    /**
+     * @return the current number of messages per transaction
+     */
+    public int getBatchSize() {
+        return batchSize.get();
+    }
+
+    public Histogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    public synchronized String summary() {
+        return String.format("Committed %d messages in %d transactions (batch size now %d), %d rollbacks, "
+                + "%d retries, %d messages given up, commit latency(us) %s", committed, commits, batchSize.get(),
+                rollbacks, retries, failed, commitLatency.summary(1000.0));
+    }
+
+    // A failed commit has usually rolled back already, rolling back again makes sure no partial batch remains
+    private void rollback() {
+        try {
+            session.rollback();
+        } catch (JMSException ex) {
+            System.out.println("Error rolling back transaction.");
+            ex.printStackTrace();
+        }
+    }
+
+    private synchronized void commitIfDue() {
+        if (!pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= maxDelayNanos) {
+            try {
+                commit();
+            } catch (JMSException ex) {
+                System.out.println("Error committing transaction.");
+                ex.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: WarmStandby
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+
+/**
+ * Keeps a started connection with its sessions, producers and consumers open to each of two brokers, so that a
+ * failure of the active broker is handled by switching to links that are already established instead of going
+ * through connection, authentication, session and link setup.
+ *
+ * The links of a connection are created by a {@link LinkFactory} and closed by a {@link LinkCloser}. A failure is
+ * detected by the active connection's exception listener or reported by the user of the links through {@link
+ * #failover}; either way the standby links become active and the failed broker is reconnected in the background, every
+ * second until it is back, to become the new standby. {@link #recovered} records the time from the detection of a
+ * failure to the first successful operation afterwards.
+ *
+ * @param <T> the links kept on each connection
+ */
+public class WarmStandby<T> implements AutoCloseable {
+
+    /**
+     * Opens the links on a new connection, which is started afterwards.
+     */
+    @FunctionalInterface
+    public interface LinkFactory<T> {
+        T open(Connection connection) throws JMSException;
+    }
+
+    @FunctionalInterface
+    public interface LinkCloser<T> {
+        void close(T links) throws JMSException;
+    }
+
+    /**
+     * Told about a switch to the standby links when the failure was detected by the connection, called from a
+     * background thread.
+     */
+    @FunctionalInterface
+    public interface FailoverListener<T> {
+        void failedOver(T failed, T active);
+    }
+
+    static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final ConnectionFactory[] connectionFactories;
+    private final LinkFactory<T> linkFactory;
+    private final LinkCloser<T> linkCloser;
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "warm-standby");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Histogram recoveryNanos = new Histogram();
+
+    private volatile FailoverListener<T> listener;
+    private volatile Endpoint active;
+    private Endpoint standby;
+    private volatile long failedAtNanos;
+    private volatile boolean closed;
+    private long failovers;
+
+    public WarmStandby(ConnectionFactory primary, ConnectionFactory secondary, LinkFactory<T> linkFactory,
+            LinkCloser<T> linkCloser) {
+        this.connectionFactories = new ConnectionFactory[] { primary, secondary };
+        this.linkFactory = linkFactory;
+        this.linkCloser = linkCloser;
+    }
+
+    public void setFailoverListener(FailoverListener<T> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Connects to the primary broker, or to the secondary one if the primary is unavailable, and opens the standby
+     * connection to the other one.
+     */
+    public synchronized void start() throws JMSException {
+        try {
+            active = open(0);
+        } catch (JMSException ex) {
+            active = open(1);
+        }
+        reconnect(1 - active.index, 0);
+    }
+
+    /**
+     * @return the active links
+     */
+    public T get() throws JMSException {
+        Endpoint endpoint = active;
+        if (endpoint == null) {
+            throw new JMSException("No broker is available");
+        }
+        return endpoint.links;
+    }
+
+    /**
+     * Switches to the standby links if {@code failed} are still the active links, connecting to either broker if there
+     * is no standby.
+     *
+     * @return the links now active
+     */
+    public synchronized T failover(T failed) throws JMSException {
+        Endpoint previous = active;
+        if (previous != null && previous.links != failed) {
+            return previous.links;
+        }
+        if (failedAtNanos == 0) {
+            failedAtNanos = System.nanoTime();
+        }
+        Endpoint next = standby;
+        standby = null;
+        if (next == null) {
+            // No warm standby, so this takes the full reconnect path
+            int first = previous == null ? 0 : 1 - previous.index;
+            try {
+                next = open(first);
+            } catch (JMSException ex) {
+                try {
+                    next = open(1 - first);
+                } catch (JMSException again) {
+                    active = null;
+                    if (previous != null) {
+                        previous.close();
+                    }
+                    reconnect(0, RECONNECT_DELAY_MILLIS);
+                    reconnect(1, RECONNECT_DELAY_MILLIS);
+                    throw again;
+                }
+            }
+        }
+        // Switch before closing, as closing may fail operations that are then retried on the active links
+        active = next;
+        failovers++;
+        if (previous != null) {
+            previous.close();
+        }
+        reconnect(1 - next.index, RECONNECT_DELAY_MILLIS);
+        return next.links;
+    }
+
+    /**
+     * Fails over in the background if {@code failed} are still the active links, for failures reported on threads
+     * that must not block, such as completion listeners.
+     */
+    public void reportFailure(T failed) {
+        reconnector.execute(() -> {
+            Endpoint endpoint;
+            synchronized (this) {
+                endpoint = active;
+            }
+            if (endpoint != null && endpoint.links == failed) {
+                onConnectionFailed(endpoint);
+            }
+        });
+    }
+
+    /**
+     * Records the time to recover if a failure is being recovered from. Called after each successful operation.
+     */
+    public void recovered() {
+        long failedAt = failedAtNanos;
+        if (failedAt != 0) {
+            synchronized (this) {
+                if (failedAtNanos == failedAt) {
+                    recoveryNanos.recordValue(System.nanoTime() - failedAt);
+                    failedAtNanos = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the times from the detection of a failure to the first successful operation, in nanoseconds
+     */
+    public Histogram getRecoveryTimes() {
+        return recoveryNanos;
+    }
+
+    public synchronized boolean hasStandby() {
+        return standby != null;
+    }
+
+    public synchronized String summary() {
+        return String.format("%d failovers, standby %s, time to recover ms %s", failovers,
+                standby != null ? "ready" : "not connected", recoveryNanos.summary(1e6));
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        reconnector.shutdownNow();
+        if (active != null) {
+            active.close();
+            active = null;
+        }
+        if (standby != null) {
+            standby.close();
+            standby = null;
+        }
+    }
+
+    private Endpoint open(int index) throws JMSException {
+        Connection connection = connectionFactories[index].createConnection();
+        try {
+            T links = linkFactory.open(connection);
+            Endpoint endpoint = new Endpoint(index, connection, links);
+            connection.setExceptionListener(ex -> reconnector.execute(() -> onConnectionFailed(endpoint)));
+            connection.start();
+            return endpoint;
+        } catch (JMSException | RuntimeException ex) {
+            connection.close();
+            throw ex;
+        }
+    }
+
+    private void reconnect(int index, long delayMillis) {
+        if (closed) {
+            return;
+        }
+        reconnector.schedule(() -> {
+            try {
+                Endpoint endpoint = open(index);
+                synchronized (this) {
+                    if (closed || standby != null || (active != null && active.index == index)) {
+                        endpoint.close();
+                    } else if (active == null) {
+                        active = endpoint;
+                    } else {
+                        standby = endpoint;
+                    }
+                }
+            } catch (JMSException ex) {
+                reconnect(index, RECONNECT_DELAY_MILLIS);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onConnectionFailed(Endpoint endpoint) {
+        T failed = endpoint.links;
+        T next;
+        synchronized (this) {
+            if (standby == endpoint) {
+                standby = null;
+                endpoint.close();
+                reconnect(endpoint.index, RECONNECT_DELAY_MILLIS);
+                return;
+            }
+            if (active != endpoint) {
+                return;
+            }
+            try {
+                next = failover(failed);
+            } catch (JMSException ex) {
+                System.out.println("Error failing over, no broker is available.");
+                ex.printStackTrace();
+                return;
+            }
+        }
+        FailoverListener<T> listener = this.listener;
+        if (listener != null) {
+            listener.failedOver(failed, next);
+        }
+    }
+
+    private final class Endpoint {
+        final int index;
+        final Connection connection;
+        final T links;
+
+        Endpoint(int index, Connection connection, T links) {
+            this.index = index;
+            this.connection = connection;
+            this.links = links;
+        }
+
+        void close() {
+            try {
+                linkCloser.close(links);
+            } catch (JMSException ex) {
+                // The connection may be broken already
+            }
+            try {
+                connection.close();
+            } catch (JMSException ex) {
+                // Same
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ *  Apache Qpid JMS 1.1 Solace AMQP Examples: WindowedPublisher
+ */
+
+package com.solace.samples.features;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.CompletionListener;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+/**
+ * Sends persistent messages asynchronously while keeping at most a fixed window of them unsettled by the broker.
+ *
+ * A blocking persistent send waits a full round trip for the broker's settlement, which caps throughput at one message
+ * per round trip. Here each send registers a {@link CompletionListener} instead and returns immediately; the send
+ * that would exceed the window blocks until an earlier message is settled. The outcome of every message is reported
+ * to a {@link DeliveryListener} so that a rejected or failed send is never lost silently.
+ *
+ * Like the session it belongs to, a WindowedPublisher must only be used from one thread at a time.
+ */
+public class WindowedPublisher {
+
+    /**
+     * Receives the outcome of each message sent through a {@link WindowedPublisher}. Called from the JMS client's
+     * completion thread, so implementations must not use the publishing session.
+     */
+    public interface DeliveryListener {
+
+        void onSettled(long sequence, Message message);
+
+        void onFailed(long sequence, Message message, Exception exception);
+    }
+
+    private final MessageProducer producer;
+    private final int windowSize;
+    private final Semaphore window;
+    private final DeliveryListener listener;
+
+    private final AtomicLong settled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long nextSequence;
+
+    public WindowedPublisher(MessageProducer producer, int windowSize, DeliveryListener listener) {
+        this.producer = producer;
+        this.windowSize = windowSize;
+        this.window = new Semaphore(windowSize);
+        this.listener = listener;
+    }
+
+    /**
+     * Sends a persistent message to the producer's destination, blocking while the window is full.
+     *
+     * @return the sequence number under which the outcome is reported to the {@link DeliveryListener}
+     */
+    public long send(Message message) throws JMSException, InterruptedException {
+        window.acquire();
+        long sequence = nextSequence++;
+        try {
+            producer.send(message, DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE,
+                    new Settlement(sequence));
+        } catch (JMSException ex) {
+            window.release();
+            failed.incrementAndGet();
+            listener.onFailed(sequence, message, ex);
+            throw ex;
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits until every message sent so far has been settled or has failed.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!window.tryAcquire(windowSize, timeout, unit)) {
+            return false;
+        }
+        window.release(windowSize);
+        return true;
+    }
+
+    public int getInFlight() {
+        return windowSize - window.availablePermits();
+    }
+
+    public long getSettledCount() {
+        return settled.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private class Settlement implements CompletionListener {
+        private final long sequence;
+
+        Settlement(long sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            settled.incrementAndGet();
+            try {
+                listener.onSettled(sequence, message);
+            } finally {
+                window.release();
+            }
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            failed.incrementAndGet();
+            try {
+                listener.onFailed(sequence, message, exception);
+            } finally {
+                window.release();
+            }
+        }
+    }
+}